@@ -2,6 +2,7 @@ package Stage1;
 
 import Stage1.modules.AllExceptions;
 import Stage1.modules.FlightList;
+import Stage1.modules.ManifestSnapshot;
 import Stage1.modules.PassengerList;
 
 /**
@@ -24,18 +25,16 @@ import Stage1.modules.PassengerList;
 public class CheckInSystem {
     private static final String PASSENGER_DATA_FILE = "file/PassengerList.txt";
     private static final String FLIGHT_DATA_FILE = "file/FlightList.txt";
+    private static final String SNAPSHOT_FILE = "file/manifest.snapshot";
     private static PassengerList paxList;
     private static FlightList fltList;
 
     public CheckInSystem() throws AllExceptions.NoMatchingFlightException {
         // Initialize empty list of passengers and flights
-        // Load passengers from TXT file directly into paxList
         paxList = new PassengerList();
-        paxList.loadPassengersFromTXT(PASSENGER_DATA_FILE);
-        // Load flights from TXT file directly into fltList
         fltList = new FlightList();
-        fltList.loadFlightsFromTXT(FLIGHT_DATA_FILE);
-        fltList.addPassengersToFlights(paxList);
+        // Load both lists from the snapshot, or from the TXT files if they changed since it was written
+        ManifestSnapshot.loadOrParse(SNAPSHOT_FILE, PASSENGER_DATA_FILE, FLIGHT_DATA_FILE, paxList, fltList);
     }
 
     public static void main(String[] args) throws AllExceptions.NoMatchingFlightException {
@@ -197,7 +197,7 @@ public class GUI extends JFrame {
             mainPanel.add(createDetailPanel("Flight Max Passenger: ", String.valueOf(selectedFlight.getMaxPassengers())));
             mainPanel.add(createDetailPanel("Flight Max Baggage Weight: ", selectedFlight.getMaxBaggageWeight() + " kg"));
             mainPanel.add(createDetailPanel("Flight Max Baggage Volume: ", selectedFlight.getMaxBaggageVolume() / 1000000 + " cubic meters"));
-            mainPanel.add(createDetailPanel("Your Purchased Baggage Weight: ", String.valueOf(selectedFlight.getBaggageInFlight().getFreeQuota())));
+            mainPanel.add(createDetailPanel("Your Purchased Baggage Weight: ", String.valueOf(BaggageList.getFreeQuota())));
 
 
             JButton nextButton = new JButton("Next Step");
@@ -99,16 +99,20 @@ public class Baggage {
      * @throws AllExceptions.NumberErrorException if the baggage exceeds the weight limit or the size limit.
      */
     public void checkBaggage() throws AllExceptions.NumberErrorException {
-        //Check if the baggage is over the weight limit
-        if (this.getWeight() > getWeightLimit()) {
-            throw new AllExceptions.NumberErrorException();
-        }
-        // Check if the baggage is over the size limit
-        if (this.getSize() > getSizeLimit()) {
+        if (!this.isWithinLimits()) {
             throw new AllExceptions.NumberErrorException();
         }
     }
 
+    /**
+     * Checks the baggage against the weight and size limits without raising an error dialog.
+     *
+     * @return True if the baggage is within both limits, false otherwise.
+     */
+    public boolean isWithinLimits() {
+        return this.getWeight() <= getWeightLimit() && this.getSize() <= getSizeLimit();
+    }
+
     @Override
     public String toString() {
         return String.format("[weight=%s kg, dimensions=%s]",
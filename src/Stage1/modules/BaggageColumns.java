@@ -0,0 +1,208 @@
+package Stage1.modules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive baggage store for flight holds.
+ * <p>
+ * Weight, length, width, height and volume are kept in parallel growable double arrays instead of one
+ * Baggage object per bag. Sums, filters and validation iterate over the arrays without boxing or copying;
+ * Baggage objects are only created when a single bag or a BaggageList is asked for.
+ */
+public class BaggageColumns {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private double[] weights;
+    private double[] lengths;
+    private double[] widths;
+    private double[] heights;
+    private double[] volumes;
+    private int size;
+    private double totalWeight;
+    private double totalVolume;
+
+    /**
+     * Tests one bag given by its columns.
+     */
+    public interface BagPredicate {
+        boolean test(double weight, double length, double width, double height, double volume);
+    }
+
+    public BaggageColumns() {
+        this.weights = new double[INITIAL_CAPACITY];
+        this.lengths = new double[INITIAL_CAPACITY];
+        this.widths = new double[INITIAL_CAPACITY];
+        this.heights = new double[INITIAL_CAPACITY];
+        this.volumes = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds valid baggage, skipping empty baggage like BaggageList.addBaggage does.
+     *
+     * @param baggage The Baggage to add.
+     */
+    public synchronized void addBaggage(Baggage baggage) {
+        if (baggage == null || baggage.getWeight() == 0 || baggage.getSize() == 0) {
+            return;
+        }
+        if (size == weights.length) {
+            grow();
+        }
+        weights[size] = baggage.getWeight();
+        lengths[size] = baggage.getLength();
+        widths[size] = baggage.getWidth();
+        heights[size] = baggage.getHeight();
+        volumes[size] = baggage.getVolume();
+        totalWeight += weights[size];
+        totalVolume += volumes[size];
+        size++;
+    }
+
+    /**
+     * Adds a group of bags under one lock, skipping empty baggage.
+     *
+     * @param baggage The bags to add.
+     */
+    public synchronized void addAllBaggage(List<Baggage> baggage) {
+        for (Baggage bag : baggage) {
+            addBaggage(bag);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The running total weight, updated on every add.
+     */
+    public synchronized double getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * @return The running total volume, updated on every add.
+     */
+    public synchronized double getTotalVolume() {
+        return totalVolume;
+    }
+
+    /**
+     * @return The fee for the total weight, calculated the same way as BaggageList.
+     */
+    public synchronized double getTotalFee() {
+        return BaggageList.feeFor(totalWeight);
+    }
+
+    /**
+     * Sums the weight column from scratch, to verify the running total.
+     *
+     * @return The total weight of all bags.
+     */
+    public synchronized double sumWeight() {
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            sum += weights[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the volume column from scratch, to verify the running total.
+     *
+     * @return The total volume of all bags.
+     */
+    public synchronized double sumVolume() {
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            sum += volumes[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Counts the bags matching a predicate.
+     *
+     * @param predicate The test applied to the columns of each bag.
+     * @return The number of matching bags.
+     */
+    public synchronized int count(BagPredicate predicate) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(weights[i], lengths[i], widths[i], heights[i], volumes[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the bags matching a predicate.
+     *
+     * @param predicate The test applied to the columns of each bag.
+     * @return The indexes of the matching bags, in the order they were added.
+     */
+    public synchronized int[] filter(BagPredicate predicate) {
+        int[] matches = new int[Math.min(size, 16)];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(weights[i], lengths[i], widths[i], heights[i], volumes[i])) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, count * 2);
+                }
+                matches[count++] = i;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Counts the bags over the weight limit or the size limit of Baggage.checkBaggage.
+     *
+     * @return The number of bags that would fail the check.
+     */
+    public int countInvalid() {
+        return count((weight, length, width, height, volume) ->
+                weight > Baggage.getWeightLimit() || length + width + height > Baggage.getSizeLimit());
+    }
+
+    /**
+     * Creates a Baggage object for one bag.
+     *
+     * @param i The index of the bag.
+     * @return The bag at the index.
+     */
+    public synchronized Baggage get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " of " + size);
+        }
+        try {
+            return new Baggage(weights[i], lengths[i], widths[i], heights[i]);
+        } catch (AllExceptions.NumberErrorException e) {
+            // Only checked baggage is added, so its columns always pass the check again
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return A list of Baggage objects created from all bags, in the order they were added.
+     */
+    public synchronized ArrayList<Baggage> getBaggageList() {
+        ArrayList<Baggage> baggage = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            baggage.add(get(i));
+        }
+        return baggage;
+    }
+
+    private void grow() {
+        int capacity = weights.length * 2;
+        weights = Arrays.copyOf(weights, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        widths = Arrays.copyOf(widths, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+    }
+}
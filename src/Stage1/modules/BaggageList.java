@@ -2,28 +2,45 @@ package Stage1.modules;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class BaggageList {
+public class BaggageList implements Iterable<Baggage> {
     private static final double BASE_FEE = 0.0;
     private static final double FREE_QUOTA = 15;
     private static final double EXCESS_WEIGHT_FEE = 50; // Charge per kg for weight over the limit
 
     private final ArrayList<Baggage> baggageList;
+    private final ListSnapshot<Baggage> snapshot; // read-only copy, rebuilt after a change
     public double totalWeight;
     public double totalFee;
     private double totalVolume;
 
     public BaggageList() {
         this.baggageList = new ArrayList<Baggage>();
+        this.snapshot = new ListSnapshot<>(this, baggageList);
         this.totalVolume = 0.0;
         this.totalWeight = 0.0;
         this.totalFee = 0.0;
     }
 
-    public ArrayList<Baggage> getBaggageList() {
+    public synchronized ArrayList<Baggage> getBaggageList() {
         return new ArrayList<>(baggageList);
     }
 
+    /**
+     * Provides a read-only view of the baggage list, shared by all readers until the list changes.
+     * Use it instead of getBaggageList in loops that only read.
+     *
+     * @return A read-only snapshot of the baggage list.
+     */
+    public List<Baggage> view() {
+        return snapshot.view();
+    }
+
     public double getTotalVolume() {
         return this.totalVolume;
     }
@@ -37,18 +54,18 @@ public class BaggageList {
         return this.totalFee;
     }
 
-    public double getFreeQuota() {
+    public static double getFreeQuota() {
         return FREE_QUOTA;
     }
 
     /**
-     * Clears all baggage items and updates totals.
-     * Removes all items from baggage list, then recalculates total weight, volume, and fees.
+     * Clears all baggage items and resets totals.
      */
-    public void clear() {
+    public synchronized void clear() {
         this.baggageList.clear();
-        this.calculateTotalWeight();
-        this.calculateTotalVolume();
+        this.snapshot.invalidate();
+        this.totalWeight = 0.0;
+        this.totalVolume = 0.0;
         this.calculateTotalFee();
     }
 
@@ -60,23 +77,24 @@ public class BaggageList {
     }
 
     /**
-     * Adds valid baggage to the list and updates totals.
+     * Adds valid baggage to the list and updates the running totals in constant time.
      *
      * @param baggage The Baggage to add.
      */
     public synchronized void addBaggage(Baggage baggage) throws AllExceptions.NumberErrorException {
         if (baggage != null && baggage.getWeight() != 0 && baggage.getSize() != 0) {
             this.baggageList.add(baggage);
+            this.snapshot.invalidate();
+            this.totalWeight += baggage.getWeight();
+            this.totalVolume += baggage.getVolume();
+            this.calculateTotalFee();
         }
-        this.calculateTotalWeight();
-        this.calculateTotalVolume();
-        this.calculateTotalFee();
     }
 
     /**
      * Attempts to remove baggage from the baggage list.
      * If the specified baggage is found in the baggage list, it is removed.
-     * Then the method recalculates the total weight, volume and total fees.
+     * Then the method subtracts it from the running totals and updates the fee.
      *
      * @param baggage The Baggage object to be removed from the baggage list.
      * @return boolean Returns true if the baggage was successfully removed.
@@ -84,8 +102,9 @@ public class BaggageList {
      */
     private synchronized boolean removeOneBaggage(Baggage baggage) {
         if (this.baggageList.remove(baggage)) {
-            this.calculateTotalWeight();
-            this.calculateTotalVolume();
+            this.snapshot.invalidate();
+            this.totalWeight -= baggage.getWeight();
+            this.totalVolume -= baggage.getVolume();
             this.calculateTotalFee();
             return true;
         }
@@ -93,7 +112,7 @@ public class BaggageList {
     }
 
     /**
-     * Calculates the total weight of all baggage.
+     * Recalculates the total weight of all baggage from scratch.
      *
      * @return total weight.
      */
@@ -106,7 +125,7 @@ public class BaggageList {
     }
 
     /**
-     * Calculates the total volume of all baggage.
+     * Recalculates the total volume of all baggage from scratch.
      *
      * @return total volume.
      */
@@ -119,25 +138,38 @@ public class BaggageList {
     }
 
     /**
-     * Calculates the total fee based on baggage weight.
+     * Calculates the total fee based on the total baggage weight, in constant time.
      *
      * @return total fee.
      */
     public double calculateTotalFee() {
+        this.totalFee = feeFor(this.totalWeight);
+        return totalFee;
+    }
+
+    /**
+     * Calculates the fee for a total baggage weight.
+     *
+     * @param totalWeight The total weight of the baggage.
+     * @return The fee for that weight.
+     */
+    static double feeFor(double totalWeight) {
         // Reset the fee to a base value or specific initial charge
         double Fee = BASE_FEE;
 
         // Check if the baggage is over the weight limit
-        if (this.totalWeight > this.FREE_QUOTA) {
-            Fee += (this.totalWeight - this.FREE_QUOTA) * this.EXCESS_WEIGHT_FEE;
+        if (totalWeight > FREE_QUOTA) {
+            Fee += (totalWeight - FREE_QUOTA) * EXCESS_WEIGHT_FEE;
         }
-
-        // Check if the baggage is over the size limit
-        this.totalFee = Fee;
-        return totalFee;
+        return Fee;
     }
 
-    public void renewBaggageList() {
+    /**
+     * Recalculates all totals from the baggage items.
+     * The running totals are kept up to date on every change, so this is only needed to verify them
+     * or to resync after rounding drift from many removals.
+     */
+    public synchronized void renewBaggageList() {
         this.calculateTotalWeight();
         this.calculateTotalVolume();
         this.calculateTotalFee();
@@ -147,12 +179,45 @@ public class BaggageList {
         return this.baggageList.get(i);
     }
 
+    /**
+     * @return An iterator over a snapshot of the baggage list, not affected by later changes.
+     */
+    @Override
+    public Iterator<Baggage> iterator() {
+        return snapshot.view().iterator();
+    }
+
+    /**
+     * Performs the action for each baggage in a snapshot of the list.
+     *
+     * @param action The action to be performed for each baggage.
+     */
+    @Override
+    public void forEach(Consumer<? super Baggage> action) {
+        snapshot.forEach(action);
+    }
+
+    /**
+     * @return A spliterator over a snapshot of the baggage list, splitting evenly for parallel streams.
+     */
+    @Override
+    public Spliterator<Baggage> spliterator() {
+        return snapshot.spliterator();
+    }
+
+    /**
+     * @return A sequential stream over a snapshot of the baggage list.
+     */
+    public Stream<Baggage> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
     @Override
     public String toString() {
         StringBuilder baggageListDetail = new StringBuilder();
         baggageListDetail.append("Baggage list: {");
 
-        Iterator<Baggage> iterator = baggageList.iterator();
+        Iterator<Baggage> iterator = this.iterator();
         while (iterator.hasNext()) {
             Baggage baggage = iterator.next();
             baggageListDetail.append(baggage.toString());
@@ -0,0 +1,114 @@
+package Stage1.modules;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Baggage hold of a flight that many check-in counters can load at the same time.
+ * <p>
+ * Adding a bag takes no lock: the bag is appended to a lock-free log and its weight, volume and count go to
+ * striped adders. The GUI and the takeoff check read the totals from the adders, which are eventually
+ * consistent while bags are being added. The log is moved into the flight's BaggageColumns whenever the
+ * bags themselves are read, so the columns stay the one record of the hold.
+ */
+public class ConcurrentHold {
+    private final BaggageColumns columns;
+    private final ConcurrentLinkedQueue<Baggage> log; // bags not yet moved into the columns
+    private final DoubleAdder totalWeight;
+    private final DoubleAdder totalVolume;
+    private final LongAdder count;
+
+    /**
+     * Constructs the hold, starting from the bags already in its columns.
+     * The caller must hold the columns' monitor, so no bag is added to them while the totals are copied.
+     *
+     * @param columns The columns the bags are stored in.
+     */
+    public ConcurrentHold(BaggageColumns columns) {
+        this.columns = columns;
+        this.log = new ConcurrentLinkedQueue<>();
+        this.totalWeight = new DoubleAdder();
+        this.totalVolume = new DoubleAdder();
+        this.count = new LongAdder();
+        totalWeight.add(columns.getTotalWeight());
+        totalVolume.add(columns.getTotalVolume());
+        count.add(columns.size());
+    }
+
+    /**
+     * Adds valid baggage to the hold without locking, skipping empty baggage like BaggageList.addBaggage does.
+     *
+     * @param baggage The Baggage to add.
+     */
+    public void addBaggage(Baggage baggage) {
+        if (isValid(baggage)) {
+            log.offer(baggage);
+            totalWeight.add(baggage.getWeight());
+            totalVolume.add(baggage.getVolume());
+            count.increment();
+        }
+    }
+
+    /**
+     * Adds a group of bags without locking, with one update of each total, skipping empty baggage.
+     *
+     * @param baggage The bags to add.
+     */
+    public void addAllBaggage(List<Baggage> baggage) {
+        double weight = 0.0;
+        double volume = 0.0;
+        int added = 0;
+        for (Baggage bag : baggage) {
+            if (isValid(bag)) {
+                log.offer(bag);
+                weight += bag.getWeight();
+                volume += bag.getVolume();
+                added++;
+            }
+        }
+        totalWeight.add(weight);
+        totalVolume.add(volume);
+        count.add(added);
+    }
+
+    public double getTotalWeight() {
+        return totalWeight.sum();
+    }
+
+    public double getTotalVolume() {
+        return totalVolume.sum();
+    }
+
+    /**
+     * @return The fee for the total weight in the hold, calculated the same way as BaggageList.
+     */
+    public double getTotalFee() {
+        return BaggageList.feeFor(getTotalWeight());
+    }
+
+    public int size() {
+        return count.intValue();
+    }
+
+    /**
+     * Moves the logged bags into the columns and returns them.
+     *
+     * @return The columns holding every bag added so far.
+     */
+    public BaggageColumns getColumns() {
+        if (!log.isEmpty()) {
+            synchronized (columns) {
+                for (Baggage bag = log.poll(); bag != null; bag = log.poll()) {
+                    columns.addBaggage(bag);
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static boolean isValid(Baggage baggage) {
+        return baggage != null && baggage.getWeight() != 0 && baggage.getSize() != 0;
+    }
+}
@@ -5,8 +5,9 @@ import Stage2.Subject;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Flight implements Comparable<Flight>, Subject {
 
@@ -16,12 +17,15 @@ public class Flight implements Comparable<Flight>, Subject {
     private final int maxPassengers;
     private final double maxBaggageVolume;
     private final double maxBaggageWeight;
-    private final BaggageList baggageInFlight;
+    private final int takeOffTime;
+    private final BaggageColumns baggageInFlight; // Primitive columns, no Baggage object per bag in the hold
     private final PassengerList passengerInFlight;
     private final List<Observer> observers;
+    private final AtomicLong changes; // baggage added and takeoff, passenger changes are counted by the list
+    private volatile ConcurrentHold concurrentHold; // Set once many counters load the hold at the same time
     Instant startTime;
     Instant takeOffInstant;
-    private boolean isTakenOff;
+    private volatile boolean isTakenOff;
     private boolean timePassed;
 
 
@@ -43,10 +47,12 @@ public class Flight implements Comparable<Flight>, Subject {
         this.maxPassengers = maxPassengers;
         this.maxBaggageVolume = maxBaggageVolume;
         this.maxBaggageWeight = maxBaggageWeight;
+        this.takeOffTime = takeOffTime;
         this.isTakenOff = false;
         this.passengerInFlight = new PassengerList();
-        this.baggageInFlight = new BaggageList();
-        this.observers = new ArrayList<>();
+        this.baggageInFlight = new BaggageColumns();
+        this.observers = new CopyOnWriteArrayList<>(); // Notified from the notifier thread
+        this.changes = new AtomicLong();
         this.startTime = Instant.now();
         this.takeOffInstant = startTime.plus(Duration.ofMinutes(takeOffTime));
         this.timePassed = false;
@@ -77,6 +83,13 @@ public class Flight implements Comparable<Flight>, Subject {
         return maxBaggageWeight;
     }
 
+    /**
+     * @return The take-off time in minutes after the flight was created, as given in the flight file.
+     */
+    public int getTakeOffTime() {
+        return takeOffTime;
+    }
+
     public Instant getTakeOffInstant() {
         return takeOffInstant;
     }
@@ -85,15 +98,76 @@ public class Flight implements Comparable<Flight>, Subject {
         return isTakenOff;
     }
 
-    public BaggageList getBaggageInFlight() {
-        return baggageInFlight;
+    /**
+     * Returns the primitive baggage columns of the hold, for bulk sums, filters and validation.
+     * All bags of the flight are stored here; with the concurrent hold, the bags it logged are moved in first.
+     *
+     * @return The baggage columns of the hold.
+     */
+    public BaggageColumns getHoldColumns() {
+        ConcurrentHold hold = concurrentHold;
+        return hold != null ? hold.getColumns() : baggageInFlight;
+    }
+
+    /**
+     * Switches the hold to lock-free loading with striped totals, for flights loaded by several counters at once.
+     * The totals start from the bags already in the hold's columns.
+     */
+    public void enableConcurrentHold() {
+        // Under the columns' monitor, so a bag added through the columns cannot slip past the copied totals
+        synchronized (baggageInFlight) {
+            if (concurrentHold == null) {
+                concurrentHold = new ConcurrentHold(baggageInFlight);
+            }
+        }
+    }
+
+    /**
+     * @return The total baggage weight in the hold.
+     */
+    public double getHoldWeight() {
+        ConcurrentHold hold = concurrentHold;
+        return hold != null ? hold.getTotalWeight() : baggageInFlight.getTotalWeight();
+    }
+
+    /**
+     * @return The total baggage volume in the hold.
+     */
+    public double getHoldVolume() {
+        ConcurrentHold hold = concurrentHold;
+        return hold != null ? hold.getTotalVolume() : baggageInFlight.getTotalVolume();
+    }
+
+    /**
+     * @return The total baggage fee of the hold.
+     */
+    public double getHoldFee() {
+        ConcurrentHold hold = concurrentHold;
+        return hold != null ? hold.getTotalFee() : baggageInFlight.getTotalFee();
+    }
+
+    /**
+     * @return Baggage objects created from the bags in the hold.
+     */
+    public List<Baggage> getHoldBaggage() {
+        return getHoldColumns().getBaggageList();
     }
 
     public PassengerList getPassengerInFlight() {
-        notifyObservers();
         return passengerInFlight;
     }
 
+    /**
+     * Returns a number that grows on every real change to the flight: a passenger added or checked in,
+     * baggage loaded or the takeoff. Reading the flight never changes it, so a notifier can compare two
+     * readings and send one update for any number of changes in between.
+     *
+     * @return The current version of the flight.
+     */
+    public long getVersion() {
+        return changes.get() + passengerInFlight.getVersion();
+    }
+
     @Override
     public void registerObserver(Observer observer) {
         observers.add(observer);
@@ -104,6 +178,11 @@ public class Flight implements Comparable<Flight>, Subject {
         observers.remove(observer);
     }
 
+    /**
+     * Sends an update to every observer right away. Changes to the flight do not call this themselves;
+     * a CoalescingNotifier watching getVersion calls it at most once per interval.
+     */
+    @Override
     public void notifyObservers() {
         for (Observer observer : observers) {
             observer.update();
@@ -120,8 +199,8 @@ public class Flight implements Comparable<Flight>, Subject {
      */
     public boolean canTakeOff() {
         boolean checkPassengers = this.passengerInFlight.checkInSize() < this.maxPassengers;
-        boolean checkBaggageWeight = this.baggageInFlight.getTotalWeight() < this.maxBaggageWeight;
-        boolean checkBaggageVolume = this.baggageInFlight.getTotalVolume() < this.maxBaggageVolume;
+        boolean checkBaggageWeight = this.getHoldWeight() < this.maxBaggageWeight;
+        boolean checkBaggageVolume = this.getHoldVolume() < this.maxBaggageVolume;
         return checkPassengers && checkBaggageWeight && checkBaggageVolume;
     }
 
@@ -140,26 +219,58 @@ public class Flight implements Comparable<Flight>, Subject {
      * @param baggage The baggage to add to the flight.
      */
     public void addBaggageToFlight(Baggage baggage) throws AllExceptions.NumberErrorException {
-        this.baggageInFlight.addBaggage(baggage);
+        ConcurrentHold hold = concurrentHold;
+        if (hold == null) {
+            synchronized (baggageInFlight) {
+                hold = concurrentHold; // Checked again, the concurrent hold may have been enabled meanwhile
+                if (hold == null) {
+                    this.baggageInFlight.addBaggage(baggage);
+                }
+            }
+        }
+        if (hold != null) {
+            hold.addBaggage(baggage);
+        }
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Adds a group of bags to the hold in one step, counted as a single change of the flight.
+     *
+     * @param baggage The bags to add to the flight.
+     */
+    public void addBaggageGroupToFlight(List<Baggage> baggage) {
+        ConcurrentHold hold = concurrentHold;
+        if (hold == null) {
+            synchronized (baggageInFlight) {
+                hold = concurrentHold; // Checked again, the concurrent hold may have been enabled meanwhile
+                if (hold == null) {
+                    this.baggageInFlight.addAllBaggage(baggage);
+                }
+            }
+        }
+        if (hold != null) {
+            hold.addAllBaggage(baggage);
+        }
+        changes.incrementAndGet();
     }
 
     /**
      * Adds baggage from all passengers in the flight to the flight's baggage list.
      * Iterates over each passenger, retrieves their baggage list, and adds each baggage to the flight.
-     * Renew the weight, volume and fee.
+     * The hold keeps its weight, volume and fee up to date as each bag is added.
      */
     public void addAllBaggageToFlight() throws AllExceptions.NumberErrorException {
         // Iterate over each passenger in the flight
-        for (Passenger passenger : this.getPassengerInFlight().getPassengers()) {
+        for (Passenger passenger : this.passengerInFlight.view()) {
             // Assume each passenger has a method to return their baggage list
             BaggageList passengerBaggageList = passenger.getHisBaggageList();
             // Iterate over each baggage of the passenger and add it to the flight
-            for (Baggage baggage : passengerBaggageList.getBaggageList()) {
+            for (Baggage baggage : passengerBaggageList.view()) {
                 this.addBaggageToFlight(baggage);
             }
             passenger.getHisBaggageList().clear();
         }
-        this.getBaggageInFlight().renewBaggageList();
     }
 
     /**
@@ -184,6 +295,7 @@ public class Flight implements Comparable<Flight>, Subject {
     public void takeOff() {
         if (!this.getIsTakenOff()) {
             this.isTakenOff = true;
+            changes.incrementAndGet();
             //System.out.println(this.flightCode + " take off.");
         }
     }
@@ -205,9 +317,9 @@ public class Flight implements Comparable<Flight>, Subject {
                 getFlightCode(),
                 getPassengerInFlight().size(),
                 getPassengerInFlight().checkInSize(),
-                getBaggageInFlight().getTotalWeight(),
-                getBaggageInFlight().getTotalVolume(),
+                getHoldWeight(),
+                getHoldVolume(),
                 canTakeOff() ? "Ready" : "Overload",
-                getBaggageInFlight().getTotalFee());
+                getHoldFee());
     }
 }
@@ -5,37 +5,50 @@ import Stage2.Subject;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class FlightList implements Subject {
-    private final ArrayList<Flight> flightList;
+public class FlightList implements Subject, Iterable<Flight> {
+    private static final int FLIGHT_LOCK_STRIPES = 64;
+    private final Set<Flight> flightList; // insertion order, removal without a scan; flights compare by identity
     private final List<Observer> observers;
+    // The code tables are read without the list's lock by counters and booking ingestion
+    private final ConcurrentHashMap<String, Integer> flightIds; // interned flight code -> dense id
+    private final ConcurrentHashMap<String, List<Flight>> flightsByCode; // immutable, the first flight is bound
+    private int nextFlightId; // guarded by this
+    private final ListSnapshot<Flight> snapshot; // read-only copy, rebuilt after a change
+    private final StripedLocks flightLocks; // flight id -> lock for check-in and takeoff
 
     public FlightList() {
 
-        flightList = new ArrayList<Flight>();
-        observers = new ArrayList<>();
+        flightList = new LinkedHashSet<>();
+        observers = new CopyOnWriteArrayList<>(); // Notified from the notifier thread
+        flightIds = new ConcurrentHashMap<>();
+        flightsByCode = new ConcurrentHashMap<>();
+        snapshot = new ListSnapshot<>(this, flightList);
+        flightLocks = new StripedLocks(FLIGHT_LOCK_STRIPES);
     }
 
     /**
      * Loads flight data from a txt file.
+     * Streams each flight from the memory-mapped file, skipping malformed lines.
      *
      * @param fileName Path to the txt file.
      */
     public void loadFlightsFromTXT(String fileName) {
-        this.flightList.clear(); // Optional: clear existing flights before loading new ones
+        this.clear(); // Optional: clear existing flights before loading new ones
         try {
-            List<String> lines = Files.readAllLines(Paths.get(fileName));
-            for (String line : lines.subList(1, lines.size())) { // Skip title row
-                String[] data = line.split(",");
-                if (data.length < 6) { // Ensure there are enough data fields
-                    System.out.println("Skipping malformed line: " + line);
-                    continue;
-                }
+            RecordScanner.scan(fileName, 7, data -> { // Ensure there are enough data fields
                 Flight flight = new Flight(
                         data[0], // FlightCode
                         data[1], // Destination
@@ -45,8 +58,12 @@ public class FlightList implements Subject {
                         Double.parseDouble(data[5].trim()), // MaxBaggageVolume
                         Integer.parseInt(data[6].trim()) // TakeOffTime
                 );
-                this.flightList.add(flight);
-            }
+                synchronized (this) {
+                    this.flightList.add(flight);
+                    this.register(flight);
+                    this.snapshot.invalidate();
+                }
+            });
         } catch (FileNotFoundException e) {
             System.out.println(e.getMessage());
         } catch (IOException e) {
@@ -54,13 +71,23 @@ public class FlightList implements Subject {
         }
     }
 
-    public ArrayList<Flight> getFlightList() {
+    public synchronized ArrayList<Flight> getFlightList() {
 
         return new ArrayList<>(flightList);
     }
 
+    /**
+     * Provides a read-only view of the flight list, shared by all readers until the list changes.
+     * Use it instead of getFlightList in loops that only read.
+     *
+     * @return A read-only snapshot of the flight list.
+     */
+    public List<Flight> view() {
+        return snapshot.view();
+    }
+
     public void addPassengersToFlights(PassengerList passengerList) throws AllExceptions.NoMatchingFlightException {
-        for (Passenger passenger : passengerList.getPassengers()) {
+        for (Passenger passenger : passengerList.view()) {
             String hisFlightCode = passenger.getFlightCode();
             Flight flight = this.findByCode(hisFlightCode);
             if (flight != null) {
@@ -78,58 +105,149 @@ public class FlightList implements Subject {
      * @throws AllExceptions.NoMatchingFlightException If no flight matches the given code.
      */
     public Flight findByCode(String flightCode) throws AllExceptions.NoMatchingFlightException {
-        for (Flight f : flightList) {
-            if (f.getFlightCode().equals(flightCode)) {
-                return f;
-            }
+        Flight flight = lookup(flightCode);
+        if (flight == null) {
+            throw new AllExceptions.NoMatchingFlightException();
         }
-        throw new AllExceptions.NoMatchingFlightException();
+        return flight;
     }
 
     /**
-     * Add a new models.Flight object to the list.
+     * Searches for a flight by its code, without raising an error dialog.
      *
-     * @param flight The models.Flight object to be added.
+     * @param flightCode The code of the flight to find.
+     * @param fallback   The value returned if no flight matches the code.
+     * @return The Flight matching the given code, or the fallback.
      */
-    public void addFlight(Flight flight) {
+    public Flight findByCode(String flightCode, Flight fallback) {
+        Flight flight = lookup(flightCode);
+        return flight == null ? fallback : flight;
+    }
 
-        flightList.add(flight);
-        notifyObservers();
+    /**
+     * Checks whether a flight with the code is in the list, without raising an error dialog.
+     *
+     * @param flightCode The flight code to be looked up.
+     * @return True if a flight with the code is in the list.
+     */
+    public boolean containsCode(String flightCode) {
+        return lookup(flightCode) != null;
     }
 
     /**
-     * Remove a models.Flight object identified by the given flight code.
+     * Returns the dense integer id interned for a flight code.
+     * Ids are handed out in the order flights are added and stay stable after a flight is removed.
      *
-     * @param flightCode the flight code identifying the models.Flight to be removed.
+     * @param flightCode The flight code to be looked up.
+     * @return The id of the flight code, -1 if the code has never been added.
      */
-    public void removeFlight(String flightCode) {
-        int index = findIndex(flightCode);
-        if (index != -1) {
-            flightList.remove(index);
-            notifyObservers();
-        }
+    public int getFlightId(String flightCode) {
+        Integer id = flightIds.get(flightCode);
+        return id == null ? -1 : id;
+    }
 
+    /**
+     * Returns the lock that keeps changes to one flight atomic: a check-in with its baggage, or the takeoff.
+     * Locks are striped by flight id, so work on different flights runs in parallel.
+     *
+     * @param flight The flight to be changed.
+     * @return The lock of the flight.
+     */
+    public Lock lockFor(Flight flight) {
+        int id = getFlightId(flight.getFlightCode());
+        // A flight that is not listed has no id, fall back to its code so the same flight keeps one lock
+        return flightLocks.lockFor(id >= 0 ? id : flight.getFlightCode().hashCode());
     }
 
     /**
-     * Look up a flight code and return the index of the corresponding models.Flight in the list.
+     * Resolves a flight code through the code table without raising an error dialog.
      *
      * @param flightCode The flight code to be looked up.
-     * @return The index of the models.Flight, -1 if not found.
+     * @return The Flight for the code, null if not found.
+     */
+    private Flight lookup(String flightCode) {
+        List<Flight> flights = flightsByCode.get(flightCode);
+        return flights == null ? null : flights.get(0);
+    }
+
+    /**
+     * Interns the code of a flight and adds the flight to the flights of its code.
+     * Call while holding the list's lock.
+     *
+     * @param flight The flight to be registered in the code table.
      */
-    private int findIndex(String flightCode) {
-        for (int i = 0; i < flightList.size(); i++) {
-            if (flightList.get(i).getFlightCode().equals(flightCode)) {
-                return i;
+    private void register(Flight flight) {
+        String flightCode = flight.getFlightCode();
+        flightIds.computeIfAbsent(flightCode, code -> nextFlightId++);
+        // Keep the first flight for a code bound, as the old linear search did
+        flightsByCode.merge(flightCode, List.of(flight), (listed, added) -> {
+            List<Flight> flights = new ArrayList<>(listed);
+            flights.addAll(added);
+            return List.copyOf(flights);
+        });
+    }
+
+    /**
+     * Drops a flight from the flights of its code, binding the code to the next flight with it if any.
+     * The interned id is kept. Call while holding the list's lock.
+     *
+     * @param flight The flight to be removed from the code table.
+     */
+    private void unregister(Flight flight) {
+        flightsByCode.computeIfPresent(flight.getFlightCode(), (code, listed) -> {
+            List<Flight> flights = new ArrayList<>(listed);
+            flights.removeIf(listedFlight -> listedFlight == flight);
+            return flights.isEmpty() ? null : List.copyOf(flights);
+        });
+    }
+
+    /**
+     * Removes all flights. Interned codes are dropped as well, so ids restart from 0.
+     */
+    synchronized void clear() {
+        flightList.clear();
+        flightIds.clear();
+        flightsByCode.clear();
+        nextFlightId = 0;
+        snapshot.invalidate();
+    }
+
+    /**
+     * Add a new models.Flight object to the list.
+     *
+     * @param flight The models.Flight object to be added.
+     */
+    public void addFlight(Flight flight) {
+        synchronized (this) {
+            flightList.add(flight);
+            register(flight);
+            snapshot.invalidate();
+        }
+        notifyObservers();
+    }
+
+    /**
+     * Remove a models.Flight object identified by the given flight code.
+     *
+     * @param flightCode the flight code identifying the models.Flight to be removed.
+     */
+    public void removeFlight(String flightCode) {
+        synchronized (this) {
+            Flight flight = lookup(flightCode);
+            if (flight == null) {
+                return;
             }
+            flightList.remove(flight);
+            unregister(flight);
+            snapshot.invalidate();
         }
-        return -1;
+        notifyObservers();
     }
 
     /**
      * @return The number of models.Flight objects currently in the list.
      */
-    public int size() {
+    public synchronized int size() {
         return this.flightList.size();
     }
 
@@ -138,7 +256,7 @@ public class FlightList implements Subject {
      */
     public String listDetails() {
         StringBuilder allEntries = new StringBuilder();
-        for (Flight flight : flightList) {
+        for (Flight flight : snapshot.view()) {
             allEntries.append(flight.toString());
             allEntries.append('\n');
         }
@@ -146,8 +264,25 @@ public class FlightList implements Subject {
     }
 
 
+    /**
+     * @param i The position of the flight, in the order flights were added.
+     * @return The flight at the position in a snapshot of the list.
+     */
     public Flight get(int i) {
-        return flightList.get(i);
+        return snapshot.view().get(i);
+    }
+
+    /**
+     * Returns the sum of the versions of all flights, which grows whenever any flight changes.
+     *
+     * @return The current version of the flight list.
+     */
+    public long getVersion() {
+        long version = 0;
+        for (Flight flight : snapshot.view()) {
+            version += flight.getVersion();
+        }
+        return version;
     }
 
     /**
@@ -156,13 +291,49 @@ public class FlightList implements Subject {
      * and then evaluating if the flight meets the criteria to take off.
      */
     public void renewAllFlight() throws AllExceptions.NumberErrorException {
-        for (Flight flight : flightList) {
+        for (Flight flight : snapshot.view()) {
             flight.addAllBaggageToFlight();
         }
     }
 
+    /**
+     * @return An iterator over a snapshot of the flight list, not affected by later changes.
+     */
+    @Override
     public Iterator<Flight> iterator() {
-        return this.getFlightList().iterator();
+        return snapshot.view().iterator();
+    }
+
+    /**
+     * Performs the action for each flight in a snapshot of the list.
+     *
+     * @param action The action to be performed for each flight.
+     */
+    @Override
+    public void forEach(Consumer<? super Flight> action) {
+        snapshot.forEach(action);
+    }
+
+    /**
+     * @return A spliterator over a snapshot of the flight list, splitting evenly for parallel streams.
+     */
+    @Override
+    public Spliterator<Flight> spliterator() {
+        return snapshot.spliterator();
+    }
+
+    /**
+     * @return A sequential stream over a snapshot of the flight list.
+     */
+    public Stream<Flight> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return A parallel stream over a snapshot of the flight list.
+     */
+    public Stream<Flight> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
     }
 
     @Override
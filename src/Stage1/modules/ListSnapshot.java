@@ -0,0 +1,94 @@
+package Stage1.modules;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Copy-on-write snapshot of a list or set that is copied once per change instead of once per read.
+ * <p>
+ * The owner calls invalidate after every change it makes while holding its lock. The next reader copies
+ * the list under the same lock and publishes the copy, so every later read until the next change shares it.
+ * A reader never sees a list that is being modified, and changes made after it took the snapshot do not
+ * affect it.
+ */
+final class ListSnapshot<T> {
+    private final Object lock;
+    private final Collection<T> source;
+    private volatile State<T> state;
+
+    /**
+     * @param lock   The lock the owner holds while changing the source list.
+     * @param source The collection to take snapshots of, in its iteration order.
+     */
+    ListSnapshot(Object lock, Collection<T> source) {
+        this.lock = lock;
+        this.source = source;
+    }
+
+    /**
+     * Drops the current snapshot, call while holding the lock after every change to the source list.
+     */
+    void invalidate() {
+        state = null;
+    }
+
+    /**
+     * @return A read-only list of the elements when the snapshot was taken.
+     */
+    List<T> view() {
+        return current().view;
+    }
+
+    /**
+     * Performs the action for each element of the snapshot, without creating an iterator.
+     *
+     * @param action The action to be performed.
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(Consumer<? super T> action) {
+        for (Object element : current().elements) {
+            action.accept((T) element);
+        }
+    }
+
+    /**
+     * @return A spliterator over the snapshot that splits evenly for parallel streams.
+     */
+    Spliterator<T> spliterator() {
+        return Spliterators.spliterator(current().elements,
+                Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    private State<T> current() {
+        State<T> current = state;
+        if (current == null) {
+            synchronized (lock) {
+                current = state;
+                if (current == null) {
+                    current = new State<>(source.toArray());
+                    state = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The copied elements and the read-only list over them.
+     */
+    private static final class State<T> {
+        private final Object[] elements;
+        private final List<T> view;
+
+        @SuppressWarnings("unchecked")
+        State(Object[] elements) {
+            this.elements = elements;
+            this.view = Collections.unmodifiableList((List<T>) Arrays.asList(elements));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package Stage1.modules;
+
+/**
+ * Summary of one file load: how many records were loaded, how many lines were skipped and how long it took.
+ */
+public class LoadReport {
+    private final int loaded;
+    private final int skipped;
+    private final long elapsedMillis;
+
+    public LoadReport(int loaded, int skipped, long elapsedMillis) {
+        this.loaded = loaded;
+        this.skipped = skipped;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getLoaded() {
+        return loaded;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Loaded %d records in %d ms, skipped %d malformed lines.", loaded, elapsedMillis, skipped);
+    }
+}
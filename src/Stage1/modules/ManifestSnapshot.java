@@ -0,0 +1,188 @@
+package Stage1.modules;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a loaded FlightList and PassengerList, with every passenger already assigned to his flight.
+ * <p>
+ * Layout: magic, version, body length and CRC32 of the body, followed by the body itself.
+ * The body holds all flights, then all passengers with the index of their flight in the flight table.
+ * <p>
+ * The snapshot only caches the parsed txt files, so a start can skip parsing them. It does not hold any state
+ * from a run: passengers are restored as not checked in and flights without baggage, as if the files were parsed.
+ */
+public class ManifestSnapshot {
+    private static final int MAGIC = 0x464C5053; // "FLPS"
+    private static final int VERSION = 1;
+    private static final int NO_FLIGHT = -1;
+
+    private ManifestSnapshot() {
+    }
+
+    /**
+     * Fills the lists from the snapshot if it is newer than both txt files, otherwise parses the txt files,
+     * the passenger file on all cores, joins passengers to flights and writes a fresh snapshot for the next start.
+     *
+     * @param snapshotFile  Path to the snapshot file.
+     * @param passengerFile Path to the passenger txt file.
+     * @param flightFile    Path to the flight txt file.
+     * @param passengerList The empty passenger list to be filled.
+     * @param flightList    The empty flight list to be filled.
+     * @return The report of the passenger file load, or null if the lists were filled from the snapshot.
+     * @throws AllExceptions.NoMatchingFlightException If a passenger's flight cannot be found while parsing.
+     */
+    public static LoadReport loadOrParse(String snapshotFile, String passengerFile, String flightFile,
+                                   PassengerList passengerList, FlightList flightList) throws AllExceptions.NoMatchingFlightException {
+        if (isFresh(snapshotFile, passengerFile, flightFile)) {
+            try {
+                load(snapshotFile, passengerList, flightList);
+                return null;
+            } catch (IOException e) {
+                System.out.println("Ignoring snapshot " + snapshotFile + ": " + e.getMessage());
+            }
+        }
+        LoadReport report = passengerList.loadPassengersFromTXTParallel(passengerFile);
+        flightList.loadFlightsFromTXT(flightFile);
+        flightList.addPassengersToFlights(passengerList);
+        try {
+            save(snapshotFile, passengerList, flightList);
+        } catch (IOException e) {
+            System.out.println("Could not write snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+        return report;
+    }
+
+    /**
+     * Writes the flights and passengers to a snapshot file. Check-ins and baggage are not written.
+     *
+     * @param snapshotFile  Path to the snapshot file.
+     * @param passengerList The passengers to be written.
+     * @param flightList    The flights to be written, with passengers already added.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(String snapshotFile, PassengerList passengerList, FlightList flightList) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+
+        Map<String, Integer> flightIndexes = new HashMap<>();
+        body.writeInt(flightList.size());
+        for (int i = 0; i < flightList.size(); i++) {
+            Flight flight = flightList.get(i);
+            flightIndexes.putIfAbsent(flight.getFlightCode(), i);
+            body.writeUTF(flight.getFlightCode());
+            body.writeUTF(flight.getDestination());
+            body.writeUTF(flight.getCarrier());
+            body.writeInt(flight.getMaxPassengers());
+            body.writeDouble(flight.getMaxBaggageWeight());
+            body.writeDouble(flight.getMaxBaggageVolume());
+            body.writeInt(flight.getTakeOffTime());
+        }
+
+        List<Passenger> passengers = passengerList.view();
+        body.writeInt(passengers.size());
+        for (Passenger passenger : passengers) {
+            body.writeUTF(passenger.getRefCode());
+            body.writeUTF(passenger.getFirstName());
+            body.writeUTF(passenger.getLastName());
+            body.writeUTF(passenger.getFlightCode());
+            body.writeBoolean(passenger.isVIP());
+            body.writeInt(flightIndexes.getOrDefault(passenger.getFlightCode(), NO_FLIGHT));
+        }
+        body.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        Path path = Paths.get(snapshotFile);
+        Path temp = Paths.get(snapshotFile + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(bytes.size());
+            out.writeLong(crc.getValue());
+            bytes.writeTo(out);
+        }
+        // Replace the old snapshot only once the new one is complete
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Fills the lists from a snapshot file. The header and checksum are verified before anything is added.
+     *
+     * @param snapshotFile  Path to the snapshot file.
+     * @param passengerList The passenger list to be filled.
+     * @param flightList    The flight list to be filled.
+     * @throws IOException If the file cannot be read, has a different version or fails the checksum.
+     */
+    public static void load(String snapshotFile, PassengerList passengerList, FlightList flightList) throws IOException {
+        byte[] content;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(Paths.get(snapshotFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a manifest snapshot.");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ".");
+            }
+            content = new byte[in.readInt()];
+            long checksum = in.readLong();
+            in.readFully(content);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if (crc.getValue() != checksum) {
+                throw new IOException("Snapshot checksum mismatch.");
+            }
+        }
+
+        DataInputStream body = new DataInputStream(new ByteArrayInputStream(content));
+        passengerList.clear();
+        flightList.clear();
+        List<Flight> flights = new ArrayList<>();
+        int flightCount = body.readInt();
+        for (int i = 0; i < flightCount; i++) {
+            Flight flight = new Flight(body.readUTF(), body.readUTF(), body.readUTF(),
+                    body.readInt(), body.readDouble(), body.readDouble(), body.readInt());
+            flights.add(flight);
+            flightList.addFlight(flight);
+        }
+
+        int passengerCount = body.readInt();
+        for (int i = 0; i < passengerCount; i++) {
+            Passenger passenger = new Passenger(body.readUTF(), body.readUTF(), body.readUTF(), body.readUTF(), body.readBoolean());
+            passengerList.addPassenger(passenger);
+            int flightIndex = body.readInt();
+            if (flightIndex != NO_FLIGHT) {
+                flights.get(flightIndex).addPassenger(passenger);
+            }
+        }
+    }
+
+    /**
+     * Checks if the snapshot exists and was written after both txt files were last changed.
+     */
+    private static boolean isFresh(String snapshotFile, String passengerFile, String flightFile) {
+        try {
+            Path snapshot = Paths.get(snapshotFile);
+            if (!Files.exists(snapshot)) {
+                return false;
+            }
+            long written = Files.getLastModifiedTime(snapshot).toMillis();
+            return written > Files.getLastModifiedTime(Paths.get(passengerFile)).toMillis()
+                    && written > Files.getLastModifiedTime(Paths.get(flightFile)).toMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
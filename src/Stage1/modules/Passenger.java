@@ -1,13 +1,25 @@
 package Stage1.modules;
 
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
 public class Passenger implements Comparable<Passenger> {
+    private static final WeakReference<PassengerList>[] NO_LISTS = newListArray(0);
+    private static final int[] NO_SLOTS = new int[0];
+
     private final String referenceCode;
-    private final String firstName;
-    private final String lastName;
-    private final String flightCode;
+    private final long packedRefCode; // RefCodeCodec form, cheaper to sort and hash
+    // Names and flight codes repeat across passengers, so only their SymbolTable ids are kept
+    private final int firstNameId;
+    private final int lastNameId;
+    private final int flightCodeId;
     private final boolean vip;
     private boolean ifCheck;
-    private BaggageList baggageOfPassenger;
+    private volatile BaggageList baggageOfPassenger; // Created on first use
+    // The lists this passenger is in and his slot in each, told about his check-in. The references are weak,
+    // so a temporary list the passenger was added to can still be garbage collected.
+    private WeakReference<PassengerList>[] memberOf = NO_LISTS;
+    private int[] slots = NO_SLOTS;
 
     /**
      * Construct a new models.Passenger with the specified details. All provided information is used
@@ -25,12 +37,25 @@ public class Passenger implements Comparable<Passenger> {
                     "Cannot have blank name or reference code");
         }
         this.referenceCode = referenceCode.trim();
-        this.firstName = firstName.trim();
-        this.lastName = lastName.trim();
-        this.flightCode = flightCode.trim();
+        this.packedRefCode = RefCodeCodec.encode(this.referenceCode);
+        this.firstNameId = SymbolTable.intern(firstName.trim());
+        this.lastNameId = SymbolTable.intern(lastName.trim());
+        this.flightCodeId = SymbolTable.intern(flightCode.trim());
+        this.vip = vip;
+        this.ifCheck = false;
+    }
+
+    /**
+     * Construct a passenger from already interned SymbolTable ids, used by PassengerColumns.
+     */
+    Passenger(String referenceCode, int firstNameId, int lastNameId, int flightCodeId, boolean vip) {
+        this.referenceCode = referenceCode;
+        this.packedRefCode = RefCodeCodec.encode(referenceCode);
+        this.firstNameId = firstNameId;
+        this.lastNameId = lastNameId;
+        this.flightCodeId = flightCodeId;
         this.vip = vip;
         this.ifCheck = false;
-        this.baggageOfPassenger = new BaggageList(); // Initialize the baggage list for the passenger
     }
 
 
@@ -38,28 +63,114 @@ public class Passenger implements Comparable<Passenger> {
         return referenceCode;
     }
 
+    /**
+     * @return The reference code packed by RefCodeCodec, or RefCodeCodec.NOT_PACKED if it cannot be packed.
+     */
+    public long getPackedRefCode() {
+        return packedRefCode;
+    }
+
+    /**
+     * @return The SymbolTable id of the flight code.
+     */
+    int getFlightCodeId() {
+        return flightCodeId;
+    }
+
     public String getFirstName() {
-        return firstName;
+        return SymbolTable.lookup(firstNameId);
     }
 
     public String getLastName() {
-        return lastName;
+        return SymbolTable.lookup(lastNameId);
     }
 
     public String getName() {
-        return firstName + " " + lastName;
+        return getFirstName() + " " + getLastName();
     }
 
     public String getFlightCode() {
-        return flightCode;
+        return SymbolTable.lookup(flightCodeId);
     }
 
-    public boolean getIfCheck() {
+    public synchronized boolean getIfCheck() {
         return ifCheck;
     }
 
+    /**
+     * Checks the passenger in and updates the check-in count of every list he is in.
+     * Checking in twice has no further effect.
+     */
     public void checkIn() {
-        this.ifCheck = true;
+        WeakReference<PassengerList>[] lists;
+        int[] listSlots;
+        synchronized (this) {
+            if (this.ifCheck) {
+                return;
+            }
+            this.ifCheck = true;
+            lists = this.memberOf;
+            listSlots = this.slots;
+        }
+        for (int i = 0; i < lists.length; i++) {
+            PassengerList list = lists[i].get();
+            if (list != null) {
+                list.markCheckedIn(listSlots[i], this);
+            }
+        }
+    }
+
+    /**
+     * Records that the passenger was added to a list at the given slot.
+     *
+     * @return True if the passenger has already checked in.
+     */
+    synchronized boolean joinList(PassengerList list, int slot) {
+        int n = retainLists(null);
+        memberOf = Arrays.copyOf(memberOf, n + 1);
+        slots = Arrays.copyOf(slots, n + 1);
+        memberOf[n] = new WeakReference<>(list);
+        slots[n] = slot;
+        return ifCheck;
+    }
+
+    /**
+     * Records that the passenger was removed from a list.
+     */
+    synchronized void leaveList(PassengerList list) {
+        retainLists(list);
+    }
+
+    /**
+     * Replaces the membership arrays with new ones that leave out the given list and the lists that have
+     * been garbage collected. New arrays are used because checkIn reads the old ones outside the lock.
+     *
+     * @param removed The list to leave out, or null.
+     * @return The number of lists kept.
+     */
+    private int retainLists(PassengerList removed) {
+        WeakReference<PassengerList>[] keptLists = newListArray(memberOf.length);
+        int[] keptSlots = new int[slots.length];
+        int n = 0;
+        for (int i = 0; i < memberOf.length; i++) {
+            PassengerList list = memberOf[i].get();
+            if (list != null && list != removed) {
+                keptLists[n] = memberOf[i];
+                keptSlots[n] = slots[i];
+                n++;
+            }
+        }
+        memberOf = Arrays.copyOf(keptLists, n);
+        slots = Arrays.copyOf(keptSlots, n);
+        return n;
+    }
+
+    /**
+     * Creates an array of list references; Java cannot create arrays of a generic type directly.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static WeakReference<PassengerList>[] newListArray(int length) {
+        return new WeakReference[length];
     }
 
     /**
@@ -69,16 +180,22 @@ public class Passenger implements Comparable<Passenger> {
     public String toString() {
         return "models.Passenger{" +
                 "refCode='" + referenceCode + '\'' +
-                ", firstName='" + firstName + '\'' +
-                ", lastName='" + lastName + '\'' +
-                ", flightCode='" + flightCode + '\'' +
+                ", firstName='" + getFirstName() + '\'' +
+                ", lastName='" + getLastName() + '\'' +
+                ", flightCode='" + getFlightCode() + '\'' +
                 ", checkedIn=" + ifCheck +
                 '}';
     }
 
 
+    /**
+     * Orders passengers by reference code. Packed codes keep the string order, so they are compared as longs.
+     */
     @Override
     public int compareTo(Passenger other) {
+        if (this.packedRefCode != RefCodeCodec.NOT_PACKED && other.packedRefCode != RefCodeCodec.NOT_PACKED) {
+            return Long.compare(this.packedRefCode, other.packedRefCode);
+        }
         return this.referenceCode.compareTo(other.referenceCode);
     }
 
@@ -88,7 +205,17 @@ public class Passenger implements Comparable<Passenger> {
      * @return The BaggageList belonging to the passenger.
      */
     public BaggageList getHisBaggageList() {
-        return this.baggageOfPassenger;
+        BaggageList baggageList = this.baggageOfPassenger;
+        if (baggageList == null) {
+            synchronized (this) {
+                baggageList = this.baggageOfPassenger;
+                if (baggageList == null) {
+                    baggageList = new BaggageList();
+                    this.baggageOfPassenger = baggageList;
+                }
+            }
+        }
+        return baggageList;
     }
 
     /**
@@ -0,0 +1,268 @@
+package Stage1.modules;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Standalone columnar passenger store for batch jobs such as reports and manifest audits.
+ * It is filled from the passenger file or row by row, not from a PassengerList, which keeps its own
+ * Passenger objects and only a small check-in index next to them.
+ * <p>
+ * Every field is kept in its own primitive column: packed reference codes, SymbolTable ids for names and
+ * flight codes, and bit sets for VIP and check-in status. Passenger objects are only created when a caller
+ * asks for one with get, and their baggage list only when it is first used, so scans over a single field
+ * such as checkInSize run over the columns without allocating. Reference codes are also indexed in a hash map,
+ * so indexOf does not scan.
+ */
+public class PassengerColumns {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] refCodes;
+    private int[] firstNameIds;
+    private int[] lastNameIds;
+    private int[] flightCodeIds;
+    private final BitSet vip;
+    private final BitSet checkedIn;
+    private final Map<Integer, String> unpackedRefCodes; // Rows whose reference code cannot be packed
+    private final Map<Long, Integer> packedRows; // packed reference code -> first row with it
+    private final Map<String, Integer> unpackedRows; // unpackable reference code -> first row with it
+    private int checkedInCount;
+    private Passenger[] materialized;
+    private int size;
+
+    public PassengerColumns() {
+        this.vip = new BitSet();
+        this.checkedIn = new BitSet();
+        this.unpackedRefCodes = new HashMap<>();
+        this.packedRows = new HashMap<>();
+        this.unpackedRows = new HashMap<>();
+        this.clear();
+    }
+
+    /**
+     * Loads passengers from a txt file into the columns.
+     * Clears existing rows, then streams each passenger from the file, skipping malformed lines.
+     *
+     * @param fileName Path to the txt file.
+     */
+    public synchronized void loadPassengersFromTXT(String fileName) {
+        this.clear();
+        try {
+            RecordScanner.scan(fileName, 5, data -> this.addPassenger(data[0], data[1], data[2], data[3], Boolean.parseBoolean(data[4])));
+        } catch (FileNotFoundException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Appends one passenger as a new row, with the same checks as the Passenger constructor.
+     *
+     * @param referenceCode The unique reference code for the passenger.
+     * @param firstName     The first name of the passenger.
+     * @param lastName      The last name of the passenger.
+     * @param flightCode    The code of the flight associated with the passenger.
+     * @param isVIP         Boolean flag indicating whether the passenger is first class.
+     */
+    public synchronized void addPassenger(String referenceCode, String firstName, String lastName, String flightCode, boolean isVIP) {
+        if (firstName.trim().isEmpty() || lastName.trim().isEmpty() || referenceCode.trim().isEmpty()) {
+            throw new IllegalStateException(
+                    "Cannot have blank name or reference code");
+        }
+        String code = referenceCode.trim();
+        appendRow(RefCodeCodec.encode(code), code, SymbolTable.intern(firstName.trim()),
+                SymbolTable.intern(lastName.trim()), SymbolTable.intern(flightCode.trim()), isVIP);
+    }
+
+    private int appendRow(long packed, String referenceCode, int firstNameId, int lastNameId, int flightCodeId, boolean isVIP) {
+        if (size == refCodes.length) {
+            grow();
+        }
+        int row = size;
+        refCodes[row] = packed;
+        if (packed == RefCodeCodec.NOT_PACKED) {
+            unpackedRefCodes.put(row, referenceCode);
+            unpackedRows.putIfAbsent(referenceCode, row);
+        } else {
+            packedRows.putIfAbsent(packed, row);
+        }
+        firstNameIds[row] = firstNameId;
+        lastNameIds[row] = lastNameId;
+        flightCodeIds[row] = flightCodeId;
+        vip.set(row, isVIP);
+        size++;
+        return row;
+    }
+
+    /**
+     * Returns the passenger of a row, creating the Passenger object the first time it is asked for.
+     * Checking in the returned passenger also marks the row as checked in.
+     *
+     * @param row The row of the passenger.
+     * @return The passenger of the row.
+     */
+    public synchronized Passenger get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        Passenger passenger = materialized[row];
+        if (passenger == null) {
+            passenger = new ColumnPassenger(this, row);
+            materialized[row] = passenger;
+        }
+        return passenger;
+    }
+
+    /**
+     * Look up the first row of a reference code in the reference code index.
+     *
+     * @param referenceCode The reference code to be looked up.
+     * @return The row of the passenger, -1 if none found.
+     */
+    public synchronized int indexOf(String referenceCode) {
+        long packed = RefCodeCodec.encode(referenceCode);
+        Integer row = packed == RefCodeCodec.NOT_PACKED ? unpackedRows.get(referenceCode) : packedRows.get(packed);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * @return The number of passengers in the store.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of passengers on the flight, counted over the flight code column.
+     */
+    public synchronized int size(String flightCode) {
+        int flightId = SymbolTable.idOf(flightCode);
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (flightCodeIds[row] == flightId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of passengers who have checked in.
+     */
+    public synchronized int checkInSize() {
+        return checkedInCount;
+    }
+
+    /**
+     * @return The number of passengers on the flight who have checked in.
+     */
+    public synchronized int checkInSize(String flightCode) {
+        int flightId = SymbolTable.idOf(flightCode);
+        int count = 0;
+        for (int row = checkedIn.nextSetBit(0); row >= 0; row = checkedIn.nextSetBit(row + 1)) {
+            if (flightCodeIds[row] == flightId) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lists the passengers who have not checked in yet, over the check-in bits.
+     *
+     * @return The passengers who have not checked in, in row order.
+     */
+    public synchronized ArrayList<Passenger> getNotCheckedIn() {
+        ArrayList<Passenger> waiting = new ArrayList<>(size - checkedInCount);
+        for (int row = checkedIn.nextClearBit(0); row < size; row = checkedIn.nextClearBit(row + 1)) {
+            waiting.add(get(row));
+        }
+        return waiting;
+    }
+
+    /**
+     * Copies every row into a PassengerList, creating the passengers that were not asked for yet.
+     *
+     * @return A PassengerList holding the same passengers.
+     */
+    public synchronized PassengerList toPassengerList() {
+        PassengerList passengerList = new PassengerList();
+        for (int row = 0; row < size; row++) {
+            passengerList.addPassenger(get(row));
+        }
+        return passengerList;
+    }
+
+    /**
+     * Removes all rows.
+     */
+    public synchronized void clear() {
+        refCodes = new long[INITIAL_CAPACITY];
+        firstNameIds = new int[INITIAL_CAPACITY];
+        lastNameIds = new int[INITIAL_CAPACITY];
+        flightCodeIds = new int[INITIAL_CAPACITY];
+        materialized = new Passenger[INITIAL_CAPACITY];
+        vip.clear();
+        checkedIn.clear();
+        unpackedRefCodes.clear();
+        packedRows.clear();
+        unpackedRows.clear();
+        checkedInCount = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = refCodes.length * 2;
+        refCodes = Arrays.copyOf(refCodes, capacity);
+        firstNameIds = Arrays.copyOf(firstNameIds, capacity);
+        lastNameIds = Arrays.copyOf(lastNameIds, capacity);
+        flightCodeIds = Arrays.copyOf(flightCodeIds, capacity);
+        materialized = Arrays.copyOf(materialized, capacity);
+    }
+
+    /**
+     * Sets the check-in bit of a row.
+     *
+     * @param row The row of the passenger.
+     * @return True if the row was not checked in before.
+     */
+    synchronized boolean markCheckedIn(int row) {
+        if (row >= size || checkedIn.get(row)) {
+            return false;
+        }
+        checkedIn.set(row);
+        checkedInCount++;
+        return true;
+    }
+
+    /**
+     * A passenger created from one row, writing its check-in back to the columns.
+     */
+    private static class ColumnPassenger extends Passenger {
+        private final PassengerColumns columns;
+        private final int row;
+
+        ColumnPassenger(PassengerColumns columns, int row) {
+            super(columns.refCodes[row] == RefCodeCodec.NOT_PACKED
+                            ? columns.unpackedRefCodes.get(row) : RefCodeCodec.decode(columns.refCodes[row]),
+                    columns.firstNameIds[row], columns.lastNameIds[row], columns.flightCodeIds[row], columns.vip.get(row));
+            this.columns = columns;
+            this.row = row;
+            if (columns.checkedIn.get(row)) {
+                super.checkIn();
+            }
+        }
+
+        @Override
+        public void checkIn() {
+            super.checkIn();
+            columns.markCheckedIn(row);
+        }
+    }
+}
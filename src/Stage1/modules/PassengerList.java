@@ -2,43 +2,56 @@ package Stage1.modules;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class PassengerList {
+public class PassengerList implements Iterable<Passenger> {
     private final ArrayList<Passenger> passengerList;
+    private final RefCodeIndex refCodeIndex; // reference code -> passenger
+    private final Map<String, List<Passenger>> lastNameIndex; // last name -> passengers
+    // Check-in index: the passengers by slot in insertion order, unaffected by sorting, and their check-in bits
+    private final ArrayList<Passenger> slots;
+    private final BitSet checkedIn; // slot -> checked in, guarded by this
+    private volatile int checkedInCount;
+    private final AtomicLong version; // grows on every add, check-in and clear
+    private final ListSnapshot<Passenger> snapshot; // read-only copy, rebuilt after a change
 
     /**
      * Constructor to initialize the models.PassengerList.
      */
     public PassengerList() {
         this.passengerList = new ArrayList<Passenger>();
+        this.refCodeIndex = new RefCodeIndex();
+        this.lastNameIndex = new HashMap<>();
+        this.slots = new ArrayList<>();
+        this.checkedIn = new BitSet();
+        this.version = new AtomicLong();
+        this.snapshot = new ListSnapshot<>(this, passengerList);
     }
 
 
     /**
      * Loads passengers from a txt file.
-     * Clears existing list, then adds each passenger from the file, skipping malformed lines.
+     * Clears existing list, then streams each passenger from the memory-mapped file, skipping malformed lines.
      *
      * @param fileName Path to the txt file.
      */
     public void loadPassengersFromTXT(String fileName) {
-        this.passengerList.clear();
+        this.clear();
         try {
-            List<String> lines = Files.readAllLines(Paths.get(fileName));
-            for (String line : lines.subList(1, lines.size())) {
-                String[] data = line.split(",");
-                if (data.length < 5) {
-                    System.out.println("Skipping malformed line: " + line);
-                    continue;
-                }
-                Passenger passenger = new Passenger(data[0], data[1], data[2], data[3], Boolean.parseBoolean(data[4]));
-                this.passengerList.add(passenger);
-            }
+            RecordScanner.scan(fileName, 5, data -> this.addPassenger(
+                    new Passenger(data[0], data[1], data[2], data[3], Boolean.parseBoolean(data[4]))));
         } catch (FileNotFoundException e) {
             System.out.println(e.getMessage());
         } catch (IOException e) {
@@ -47,6 +60,35 @@ public class PassengerList {
     }
 
 
+    /**
+     * Loads passengers from a txt file using all cores of the common fork-join pool.
+     * The file is parsed in line-aligned byte ranges, then the passengers are added in file order,
+     * so the list and its indexes end up the same as after loadPassengersFromTXT.
+     *
+     * @param fileName Path to the txt file.
+     * @return How many passengers were loaded, how many lines were skipped and how long the load took.
+     */
+    public LoadReport loadPassengersFromTXTParallel(String fileName) {
+        long start = System.nanoTime();
+        this.clear();
+        int skipped = 0;
+        try {
+            ArrayList<Passenger> loaded = new ArrayList<>();
+            skipped = RecordScanner.scanParallel(fileName, 5,
+                    data -> new Passenger(data[0], data[1], data[2], data[3], Boolean.parseBoolean(data[4])), loaded);
+            this.passengerList.ensureCapacity(loaded.size());
+            for (Passenger passenger : loaded) {
+                this.addPassenger(passenger);
+            }
+        } catch (FileNotFoundException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new LoadReport(this.size(), skipped, (System.nanoTime() - start) / 1_000_000);
+    }
+
+
     /**
      * Look up a reference code and last name, then return the corresponding models.Passenger object.
      *
@@ -54,15 +96,57 @@ public class PassengerList {
      * @return The models.Passenger corresponding to the reference code, null if none found.
      */
     public Passenger findByRefCode(String referenceCode) throws AllExceptions.NoMatchingRefException {
-        for (Passenger p : passengerList) {
-            if (p.getRefCode().equals(referenceCode)) {
-                return p;
-            }
+        Passenger passenger;
+        synchronized (this) {
+            passenger = refCodeIndex.get(referenceCode);
         }
-        throw new AllExceptions.NoMatchingRefException(referenceCode);
+        if (passenger == null) {
+            throw new AllExceptions.NoMatchingRefException(referenceCode);
+        }
+        return passenger;
     }
 
+    /**
+     * Looks up a reference code without raising an error dialog.
+     *
+     * @param referenceCode The reference code to be looked up.
+     * @param fallback      The value returned if no passenger has the reference code.
+     * @return The Passenger with the reference code, or the fallback.
+     */
+    public synchronized Passenger findByRefCode(String referenceCode, Passenger fallback) {
+        Passenger passenger = refCodeIndex.get(referenceCode);
+        return passenger == null ? fallback : passenger;
+    }
 
+    /**
+     * Checks whether a passenger with the reference code is in the list, without raising an error dialog.
+     *
+     * @param referenceCode The reference code to be looked up.
+     * @return True if a passenger with the reference code is in the list.
+     */
+    public synchronized boolean containsRefCode(String referenceCode) {
+        return refCodeIndex.get(referenceCode) != null;
+    }
+
+    /**
+     * Look up all passengers sharing the given last name.
+     *
+     * @param lastName The last name to be looked up.
+     * @return The passengers with that last name in insertion order, empty if none found.
+     */
+    public synchronized List<Passenger> findByLastName(String lastName) {
+        List<Passenger> passengers = lastNameIndex.get(lastName);
+        return passengers == null ? new ArrayList<>() : new ArrayList<>(passengers);
+    }
+
+
+    /**
+     * Checks that the reference code belongs to a passenger with the given last name.
+     *
+     * @param ref      The reference code to be looked up.
+     * @param lastName The last name entered by the passenger.
+     * @return True if the reference code and last name match.
+     */
     public boolean matchPassenger(String ref, String lastName) throws AllExceptions.NoMatchingRefException, AllExceptions.NameCodeMismatchException {
         if (this.findByRefCode(ref).getLastName().equals(lastName)) {
             return true;
@@ -75,8 +159,35 @@ public class PassengerList {
      *
      * @param passenger The models.Passenger to be added.
      */
-    public void addPassenger(Passenger passenger) {
+    public synchronized void addPassenger(Passenger passenger) {
         passengerList.add(passenger);
+        snapshot.invalidate();
+        version.incrementAndGet();
+        // Keep the first passenger for a reference code, as the old linear search did
+        refCodeIndex.putIfAbsent(passenger);
+        lastNameIndex.computeIfAbsent(passenger.getLastName(), k -> new ArrayList<>()).add(passenger);
+        int slot = slots.size();
+        slots.add(passenger);
+        if (passenger.joinList(this, slot)) {
+            markCheckedIn(slot, passenger);
+        }
+    }
+
+    /**
+     * Removes all passengers and empties the lookup indexes.
+     */
+    public synchronized void clear() {
+        passengerList.clear();
+        snapshot.invalidate();
+        version.incrementAndGet();
+        refCodeIndex.clear();
+        lastNameIndex.clear();
+        for (Passenger passenger : slots) {
+            passenger.leaveList(this);
+        }
+        slots.clear();
+        checkedIn.clear();
+        checkedInCount = 0;
     }
 
     /**
@@ -84,7 +195,7 @@ public class PassengerList {
      *
      * @return A String representation of all passenger details, each on a new line.
      */
-    public String listDetails() {
+    public synchronized String listDetails() {
         StringBuffer allEntries = new StringBuffer();
         for (Passenger details : passengerList) {
             allEntries.append(details.toString());
@@ -98,20 +209,23 @@ public class PassengerList {
      *
      * @return All models.Passenger details in name order as a String.
      */
-    public String listByName() {
+    public synchronized String listByName() {
         Collections.sort(passengerList, Comparator.comparing(Passenger::getLastName)
                 .thenComparing(Passenger::getFirstName));
+        snapshot.invalidate();
         return listDetails();
     }
 
 
     /**
      * List all models.Passenger details sorted by reference code.
+     * The sort compares the packed reference codes, see Passenger.compareTo.
      *
      * @return All models.Passenger details in reference code order as a String.
      */
-    public String listByReferenceCode() {
+    public synchronized String listByReferenceCode() {
         Collections.sort(passengerList);
+        snapshot.invalidate();
         return listDetails();
     }
 
@@ -120,23 +234,75 @@ public class PassengerList {
      *
      * @return The size of the passenger list.
      */
-    public int size() {
+    public synchronized int size() {
         return this.passengerList.size();
     }
 
     /**
-     * Calculates the number of passengers who have checked in.
+     * Returns the number of passengers who have checked in.
+     * The count is kept in the check-in index and updated by Passenger.checkIn, so no passenger is visited.
      *
      * @return The count of passengers who have checked in.
      */
     public int checkInSize() {
-        int checkInSize = 0;
-        for (Passenger p : passengerList) {
-            if (p.getIfCheck()) {
-                checkInSize++;
+        return checkedInCount;
+    }
+
+    /**
+     * Returns the number of passengers of one flight who have checked in, visiting only the checked-in
+     * slots and comparing interned flight code ids.
+     *
+     * @param flightCode The code of the flight.
+     * @return The count of the flight's passengers who have checked in.
+     */
+    public synchronized int checkInSize(String flightCode) {
+        int flightId = SymbolTable.idOf(flightCode);
+        int count = 0;
+        for (int slot = checkedIn.nextSetBit(0); slot >= 0; slot = checkedIn.nextSetBit(slot + 1)) {
+            if (slots.get(slot).getFlightCodeId() == flightId) {
+                count++;
             }
         }
-        return checkInSize;
+        return count;
+    }
+
+    /**
+     * Returns a number that grows whenever a passenger is added, checks in or the list is cleared.
+     * Sorting does not change it. Compare two readings to find out whether anything changed in between.
+     *
+     * @return The current version of the list.
+     */
+    public long getVersion() {
+        return this.version.get();
+    }
+
+    /**
+     * Lists the passengers who have not checked in yet, in the order they were added.
+     *
+     * @return The passengers who have not checked in.
+     */
+    public synchronized ArrayList<Passenger> getNotCheckedIn() {
+        ArrayList<Passenger> waiting = new ArrayList<>(slots.size() - checkedInCount);
+        for (int slot = checkedIn.nextClearBit(0); slot < slots.size(); slot = checkedIn.nextClearBit(slot + 1)) {
+            waiting.add(slots.get(slot));
+        }
+        return waiting;
+    }
+
+    /**
+     * Marks the passenger at a slot as checked in, called by Passenger.checkIn.
+     * The slot is only marked if the passenger still sits in it, so a check-in racing with clear and a
+     * refill of the list cannot mark the passenger who took the slot over.
+     *
+     * @param slot      The slot the passenger was added at.
+     * @param passenger The passenger who checked in.
+     */
+    synchronized void markCheckedIn(int slot, Passenger passenger) {
+        if (slot < slots.size() && slots.get(slot) == passenger && !checkedIn.get(slot)) {
+            checkedIn.set(slot);
+            checkedInCount++;
+            version.incrementAndGet();
+        }
     }
 
     /**
@@ -145,8 +311,57 @@ public class PassengerList {
      *
      * @return A copy of the passenger list.
      */
-    public ArrayList<Passenger> getPassengers() {
+    public synchronized ArrayList<Passenger> getPassengers() {
         return new ArrayList<>(this.passengerList);
     }
 
+    /**
+     * Provides a read-only view of the passenger list, shared by all readers until the list changes.
+     * Use it instead of getPassengers in loops that only read.
+     *
+     * @return A read-only snapshot of the passenger list.
+     */
+    public List<Passenger> view() {
+        return snapshot.view();
+    }
+
+    /**
+     * @return An iterator over a snapshot of the passenger list, not affected by later changes.
+     */
+    @Override
+    public Iterator<Passenger> iterator() {
+        return snapshot.view().iterator();
+    }
+
+    /**
+     * Performs the action for each passenger in a snapshot of the list.
+     *
+     * @param action The action to be performed for each passenger.
+     */
+    @Override
+    public void forEach(Consumer<? super Passenger> action) {
+        snapshot.forEach(action);
+    }
+
+    /**
+     * @return A spliterator over a snapshot of the passenger list, splitting evenly for parallel streams.
+     */
+    @Override
+    public Spliterator<Passenger> spliterator() {
+        return snapshot.spliterator();
+    }
+
+    /**
+     * @return A sequential stream over a snapshot of the passenger list.
+     */
+    public Stream<Passenger> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return A parallel stream over a snapshot of the passenger list.
+     */
+    public Stream<Passenger> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
 }
@@ -0,0 +1,328 @@
+package Stage1.modules;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Streams comma separated records out of a memory-mapped txt file.
+ * Each line is cut into fields straight from the mapped bytes, so the file is never held as a list of lines.
+ */
+public class RecordScanner {
+    private static final long MAP_WINDOW = 64L * 1024 * 1024; // Largest region mapped at once
+    private static final long MIN_CHUNK = 1024 * 1024; // Smallest byte range parsed by one parallel task
+    private static final byte COMMA = ',';
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private RecordScanner() {
+    }
+
+    /**
+     * Handles the fields of one well-formed line.
+     */
+    public interface RecordHandler {
+        void handle(String[] fields);
+    }
+
+    /**
+     * Turns the fields of one well-formed line into a record.
+     */
+    public interface RecordParser<T> {
+        T parse(String[] fields);
+    }
+
+    /**
+     * Scans a txt file line by line, skipping the title row.
+     * Lines with fewer than minFields fields are reported and skipped, the same way String.split(",") counts them.
+     *
+     * @param fileName  Path to the txt file.
+     * @param minFields The number of fields a line needs to be handled.
+     * @param handler   Receives the fields of every well-formed line.
+     * @return The number of malformed lines skipped.
+     * @throws IOException If the file cannot be mapped or has a line longer than the mapping window.
+     */
+    public static int scan(String fileName, int minFields, RecordHandler handler) throws IOException {
+        int skipped = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            boolean header = true;
+            while (position < size) {
+                long length = Math.min(MAP_WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < size) {
+                    // Only hand over complete lines, the rest is mapped again with the next window
+                    end = lastLineEnd(buffer, end);
+                    if (end == 0) {
+                        throw new IOException("Line longer than " + MAP_WINDOW + " bytes in " + fileName);
+                    }
+                }
+                int start = 0;
+                if (header) {
+                    start = nextLineStart(buffer, 0, end); // Skip title row
+                    header = false;
+                }
+                skipped += scanLines(buffer, start, end, minFields, handler);
+                position += end;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Scans the complete lines appended to a txt file since the given offset.
+     * A trailing line without a line feed is left for the next call. If the file became shorter than
+     * the offset it was rewritten, so it is scanned again from the start, skipping the title row.
+     *
+     * @param fileName  Path to the txt file.
+     * @param offset    The file position up to which lines were already read.
+     * @param minFields The number of fields a line needs to be handled.
+     * @param handler   Receives the fields of every well-formed appended line.
+     * @return The file position after the last complete line read, to be passed to the next call.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public static long scanAppended(String fileName, long offset, int minFields, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < offset) {
+                offset = 0;
+            }
+            // Map one byte before the offset to see whether the last line read was finished
+            long from = offset == 0 ? 0 : offset - 1;
+            if (size - from <= (offset == 0 ? 0 : 1)) {
+                return offset;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(MAP_WINDOW, size - from));
+            int end = lastLineEnd(buffer, buffer.limit());
+            if (end == 0) {
+                return offset;
+            }
+            int start;
+            if (offset == 0) {
+                start = nextLineStart(buffer, 0, end); // Skip title row
+            } else if (buffer.get(0) == LINE_FEED) {
+                start = 1;
+            } else {
+                start = nextLineStart(buffer, 1, end); // The rest of a line that was already read
+            }
+            scanLines(buffer, start, end, minFields, handler);
+            return from + end;
+        }
+    }
+
+    /**
+     * Scans a txt file on the common fork-join pool, skipping the title row.
+     * The file is split into line-aligned byte ranges that are parsed in parallel, then the records are
+     * appended to the output list in the order they appear in the file.
+     *
+     * @param fileName  Path to the txt file.
+     * @param minFields The number of fields a line needs to be parsed.
+     * @param parser    Turns the fields of every well-formed line into a record.
+     * @param records   The list the parsed records are appended to.
+     * @return The number of malformed lines skipped.
+     * @throws IOException If the file cannot be read or mapped.
+     */
+    public static <T> int scanParallel(String fileName, int minFields, RecordParser<T> parser, List<T> records) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = Math.min(MAP_WINDOW,
+                    Math.max(MIN_CHUNK, size / (ForkJoinPool.getCommonPoolParallelism() * 4L)));
+
+            // Cut the file into ranges that each start right after a line feed
+            List<Long> bounds = new ArrayList<>();
+            long position = lineStartAfter(channel, 0, size); // Skip title row
+            bounds.add(position);
+            while (position < size) {
+                position = lineStartAfter(channel, Math.min(position + chunkSize, size) - 1, size);
+                bounds.add(position);
+            }
+            if (bounds.size() < 2) {
+                return 0;
+            }
+
+            ChunkTask<T> task = new ChunkTask<>(channel, bounds, 0, bounds.size() - 1, minFields, parser);
+            Chunk<T> result;
+            try {
+                result = ForkJoinPool.commonPool().invoke(task);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            records.addAll(result.records);
+            return result.skipped;
+        }
+    }
+
+    /**
+     * Parses every line in the byte range [from, to) of the buffer. The last line may omit its line feed.
+     *
+     * @param buffer    The bytes to be parsed.
+     * @param from      Index of the first byte of the first line.
+     * @param to        Index after the last byte to be parsed.
+     * @param minFields The number of fields a line needs to be handled.
+     * @param handler   Receives the fields of every well-formed line.
+     * @return The number of malformed lines skipped.
+     */
+    static int scanLines(ByteBuffer buffer, int from, int to, int minFields, RecordHandler handler) {
+        int skipped = 0;
+        byte[] scratch = new byte[128];
+        String[] fields = new String[Math.max(minFields, 8)];
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer.get(lineEnd) != LINE_FEED) {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+                lineEnd--;
+            }
+
+            int count = 0;
+            int fieldStart = lineStart;
+            for (int i = lineStart; i <= lineEnd; i++) {
+                if (i == lineEnd || buffer.get(i) == COMMA) {
+                    if (count == fields.length) {
+                        fields = Arrays.copyOf(fields, count * 2);
+                    }
+                    int length = i - fieldStart;
+                    if (length > scratch.length) {
+                        scratch = new byte[Math.max(length, scratch.length * 2)];
+                    }
+                    buffer.get(fieldStart, scratch, 0, length);
+                    fields[count++] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                    fieldStart = i + 1;
+                }
+            }
+            // Drop trailing empty fields like String.split(",") does, a blank line still counts as one field
+            while (count > 1 && fields[count - 1].isEmpty()) {
+                count--;
+            }
+
+            if (count < minFields) {
+                byte[] line = new byte[lineEnd - lineStart];
+                buffer.get(lineStart, line, 0, line.length);
+                System.out.println("Skipping malformed line: " + new String(line, StandardCharsets.UTF_8));
+                skipped++;
+            } else {
+                handler.handle(Arrays.copyOf(fields, count));
+            }
+            lineStart = next;
+        }
+        return skipped;
+    }
+
+    /**
+     * @return The index after the first line feed at or after from, or to if there is none.
+     */
+    static int nextLineStart(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == LINE_FEED) {
+                return i + 1;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * @return The file position after the first line feed at or after from, or size if there is none.
+     */
+    private static long lineStartAfter(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            int index = nextLineStart(probe, 0, read);
+            if (index < read || probe.get(read - 1) == LINE_FEED) {
+                return position + index;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * @return The index after the last line feed before end, or 0 if there is none.
+     */
+    private static int lastLineEnd(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == LINE_FEED) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The records and skipped line count parsed from a run of byte ranges.
+     */
+    private static class Chunk<T> {
+        private final List<T> records = new ArrayList<>();
+        private int skipped;
+    }
+
+    /**
+     * Parses the byte ranges [bounds[from], bounds[to]) by splitting them in halves until one range is left.
+     */
+    private static class ChunkTask<T> extends RecursiveTask<Chunk<T>> {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final List<Long> bounds;
+        private final int from;
+        private final int to;
+        private final int minFields;
+        private final RecordParser<T> parser;
+
+        ChunkTask(FileChannel channel, List<Long> bounds, int from, int to, int minFields, RecordParser<T> parser) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.minFields = minFields;
+            this.parser = parser;
+        }
+
+        @Override
+        protected Chunk<T> compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ChunkTask<T> left = new ChunkTask<>(channel, bounds, from, middle, minFields, parser);
+                ChunkTask<T> right = new ChunkTask<>(channel, bounds, middle, to, minFields, parser);
+                left.fork();
+                Chunk<T> tail = right.compute();
+                Chunk<T> head = left.join();
+                // Left half first keeps the records in file order
+                head.records.addAll(tail.records);
+                head.skipped += tail.skipped;
+                return head;
+            }
+
+            Chunk<T> chunk = new Chunk<>();
+            long start = bounds.get(from);
+            long length = bounds.get(to) - start;
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                chunk.skipped = scanLines(buffer, 0, (int) length, minFields,
+                        fields -> chunk.records.add(parser.parse(fields)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package Stage1.modules;
+
+/**
+ * Packs booking reference codes such as B0001 into a single long.
+ * <p>
+ * Up to 9 ASCII characters are stored left-aligned, 7 bits each, with unused characters left as 0.
+ * Packed codes therefore compare as longs in the same order as the strings compare.
+ * Codes that are longer or contain other characters cannot be packed and encode to NOT_PACKED.
+ */
+public class RefCodeCodec {
+    public static final long NOT_PACKED = -1L;
+    private static final int MAX_LENGTH = 9;
+    private static final int BITS_PER_CHAR = 7;
+    private static final long CHAR_MASK = (1L << BITS_PER_CHAR) - 1;
+
+    private RefCodeCodec() {
+    }
+
+    /**
+     * Packs a reference code.
+     *
+     * @param referenceCode The reference code to be packed.
+     * @return The packed code, never negative, or NOT_PACKED if the code cannot be packed.
+     */
+    public static long encode(String referenceCode) {
+        int length = referenceCode.length();
+        if (length > MAX_LENGTH) {
+            return NOT_PACKED;
+        }
+        long packed = 0;
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            long c = 0;
+            if (i < length) {
+                c = referenceCode.charAt(i);
+                if (c == 0 || c > CHAR_MASK) {
+                    return NOT_PACKED;
+                }
+            }
+            packed = (packed << BITS_PER_CHAR) | c;
+        }
+        return packed;
+    }
+
+    /**
+     * Turns a packed code back into the reference code.
+     *
+     * @param packed A code returned by encode, other than NOT_PACKED.
+     * @return The reference code.
+     */
+    public static String decode(long packed) {
+        StringBuilder referenceCode = new StringBuilder(MAX_LENGTH);
+        for (int i = MAX_LENGTH - 1; i >= 0; i--) {
+            char c = (char) ((packed >>> (i * BITS_PER_CHAR)) & CHAR_MASK);
+            if (c == 0) {
+                break;
+            }
+            referenceCode.append(c);
+        }
+        return referenceCode.toString();
+    }
+}
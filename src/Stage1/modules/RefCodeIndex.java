@@ -0,0 +1,98 @@
+package Stage1.modules;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps reference codes to passengers.
+ * Packed codes live in an open-addressing table of primitive long keys with linear probing;
+ * the rare codes that cannot be packed fall back to a HashMap.
+ */
+class RefCodeIndex {
+    private static final long EMPTY = RefCodeCodec.NOT_PACKED; // Never a packed key
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private Passenger[] values;
+    private int size;
+    private final Map<String, Passenger> unpacked;
+
+    RefCodeIndex() {
+        this.unpacked = new HashMap<>();
+        this.clear();
+    }
+
+    /**
+     * @return The passenger for the reference code, null if none.
+     */
+    Passenger get(String referenceCode) {
+        long key = RefCodeCodec.encode(referenceCode);
+        if (key == RefCodeCodec.NOT_PACKED) {
+            return unpacked.get(referenceCode);
+        }
+        int slot = find(keys, key);
+        return keys[slot] == key ? values[slot] : null;
+    }
+
+    /**
+     * Adds the passenger under his reference code, unless a passenger is already stored for that code.
+     */
+    void putIfAbsent(Passenger passenger) {
+        long key = passenger.getPackedRefCode();
+        if (key == RefCodeCodec.NOT_PACKED) {
+            unpacked.putIfAbsent(passenger.getRefCode(), passenger);
+            return;
+        }
+        int slot = find(keys, key);
+        if (keys[slot] == key) {
+            return;
+        }
+        keys[slot] = key;
+        values[slot] = passenger;
+        // Keep the table at most half full so probe runs stay short
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        Arrays.fill(keys, EMPTY);
+        values = new Passenger[INITIAL_CAPACITY];
+        size = 0;
+        unpacked.clear();
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot where it belongs.
+     */
+    private static int find(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Passenger[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new Passenger[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package Stage1.modules;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out by integer key.
+ * <p>
+ * Keys are dense ids such as FlightList.getFlightId, so consecutive keys land on different locks and work on
+ * different keys runs in parallel. Two keys that share a lock are still correct, they only wait for each other.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * Constructs the locks.
+     *
+     * @param stripes The number of locks, rounded up to a power of two.
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the lock of a key. The same key always gets the same lock.
+     *
+     * @param key The key, for example a flight id.
+     * @return The lock guarding the key.
+     */
+    public ReentrantLock lockFor(int key) {
+        return locks[key & mask];
+    }
+}
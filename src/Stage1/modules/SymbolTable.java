@@ -0,0 +1,78 @@
+package Stage1.modules;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary of the strings that repeat across passengers, such as names and flight codes.
+ * Each distinct string is stored once and referred to by a small integer id.
+ * <p>
+ * Looking up a string that is already in the table takes no lock, so the parallel loader's threads only
+ * meet when they add a new string. Ids stay valid for as long as the passengers holding them, so entries
+ * are never removed; the table grows with the distinct names and flight codes seen, not with the passengers.
+ */
+public class SymbolTable {
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] symbols = new String[64];
+    private static volatile int count = 0; // Written under the class lock only
+
+    private SymbolTable() {
+    }
+
+    /**
+     * Returns the id of a string, adding it to the table the first time it is seen.
+     *
+     * @param symbol The string to be interned.
+     * @return The id of the string.
+     */
+    public static int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(symbol, SymbolTable::append);
+    }
+
+    /**
+     * Stores a new string at the next free id. Called at most once per string, from computeIfAbsent.
+     */
+    private static synchronized int append(String symbol) {
+        String[] table = symbols;
+        int id = count;
+        if (id == table.length) {
+            table = Arrays.copyOf(table, id * 2);
+        }
+        table[id] = symbol;
+        symbols = table; // Volatile write publishes the new entry before the id is handed out
+        count = id + 1;
+        return id;
+    }
+
+    /**
+     * Returns the id of a string without adding it to the table.
+     *
+     * @param symbol The string to be looked up.
+     * @return The id of the string, -1 if it was never interned.
+     */
+    public static int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the string an id stands for.
+     *
+     * @param id An id returned by intern.
+     * @return The interned string.
+     */
+    public static String lookup(int id) {
+        return symbols[id];
+    }
+
+    /**
+     * @return The number of distinct strings in the table.
+     */
+    public static int size() {
+        return count;
+    }
+}
@@ -0,0 +1,157 @@
+package Stage2;
+
+import Stage1.modules.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * The BookingIngestion class tails the passenger file while the simulation runs.
+ * <p>
+ * It watches the file's directory with a WatchService and, whenever the file changes, reads only the lines appended
+ * since the last offset. New passengers are added to the PassengerList and to their Flight through the existing
+ * indexes, then handed to a listener, so late bookings join the simulation without a reload.
+ */
+public class BookingIngestion {
+    private final String fileName;
+    private final PassengerList paxList;
+    private final FlightList fltList;
+    private final Consumer<Passenger> onBooking;
+    private volatile long offset;
+    private volatile boolean running;
+    private WatchService watcher;
+
+    /**
+     * Constructs a BookingIngestion that starts reading at the current end of the passenger file.
+     * Create it before the initial load, so no booking written in between is missed; bookings that were
+     * already loaded are recognised by their reference code and skipped.
+     *
+     * @param fileName  Path to the passenger txt file.
+     * @param paxList   The passenger list new bookings are added to.
+     * @param fltList   The flights new bookings are assigned to.
+     * @param onBooking Called with every passenger added after the initial load.
+     */
+    public BookingIngestion(String fileName, PassengerList paxList, FlightList fltList, Consumer<Passenger> onBooking) {
+        this.fileName = fileName;
+        this.paxList = paxList;
+        this.fltList = fltList;
+        this.onBooking = onBooking;
+        this.offset = new File(fileName).length();
+        this.running = false;
+    }
+
+    /**
+     * Starts watching the passenger file in a daemon thread.
+     *
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        Path file = Paths.get(fileName).toAbsolutePath();
+        watcher = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+
+        Thread watchThread = new Thread(() -> {
+            readAppended(); // Pick up anything written between construction and start
+            while (running) {
+                WatchKey key;
+                try {
+                    key = watcher.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // An overflow may have dropped the event for our file, so read anyway
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    readAppended();
+                }
+                if (!key.reset()) {
+                    running = false;
+                }
+            }
+        });
+        watchThread.setDaemon(true);
+        watchThread.start();
+        Log.generateLog("Watching " + fileName + " for new bookings.");
+    }
+
+    /**
+     * Stops watching the passenger file.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                System.err.println("Error closing booking watcher: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads every complete line appended since the last offset and adds the new passengers.
+     */
+    private void readAppended() {
+        try {
+            long previous;
+            do {
+                previous = offset;
+                offset = RecordScanner.scanAppended(fileName, previous, 5, this::addBooking);
+            } while (offset != previous);
+        } catch (NoSuchFileException e) {
+            // The file is being replaced, the create event will bring us back
+        } catch (IOException e) {
+            Log.generateLog("Could not read new bookings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds one booking to the passenger list and its flight, unless it is already known or the flight has taken off.
+     *
+     * @param data The fields of one line of the passenger file.
+     */
+    private void addBooking(String[] data) {
+        Passenger passenger;
+        try {
+            passenger = new Passenger(data[0], data[1], data[2], data[3], Boolean.parseBoolean(data[4]));
+        } catch (IllegalStateException e) {
+            Log.generateLog("Booking " + String.join(",", data) + " skipped: " + e.getMessage());
+            return;
+        }
+        if (paxList.containsRefCode(passenger.getRefCode())) {
+            return;
+        }
+        Flight flight = fltList.findByCode(passenger.getFlightCode(), null);
+        if (flight == null) {
+            Log.generateLog(String.format("Booking %s skipped: flight %s not found.", passenger.getRefCode(), passenger.getFlightCode()));
+            return;
+        }
+        // Under the flight's lock, so the flight cannot take off between the check and the add
+        Lock flightLock = fltList.lockFor(flight);
+        flightLock.lock();
+        try {
+            if (flight.getIsTakenOff()) {
+                Log.generateLog(String.format("Booking %s skipped: flight %s has already taken off.", passenger.getRefCode(), passenger.getFlightCode()));
+                return;
+            }
+            paxList.addPassenger(passenger);
+            flight.addPassenger(passenger);
+        } finally {
+            flightLock.unlock();
+        }
+        Log.generateLog(String.format("New booking %s for flight %s.", passenger.getRefCode(), passenger.getFlightCode()));
+        onBooking.accept(passenger);
+    }
+}
@@ -3,71 +3,281 @@ package Stage2;
 import Stage1.modules.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntSupplier;
 
-public class CheckInCounter extends Thread implements Observer {
+/**
+ * The CheckInCounter class serves the passengers of one queue.
+ * <p>
+ * A counter runs in one of two modes. Started without a scheduler it gets its own thread, which blocks in
+ * the queue while idle and sleeps through the service time. Started with a shared ScheduledExecutorService
+ * it runs as a series of short tasks instead: the service time is a scheduling delay and an idle counter
+ * parks a wake-up callback in the queue, so neither holds a thread and thousands of counters can share a
+ * small pool.
+ * <p>
+ * With stealing enabled, a counter whose own queue is empty takes the next passenger from the other queue
+ * once that queue holds more than the steal threshold. A counter only steals while its own queue is empty,
+ * so a VIP counter never serves a regular passenger while a VIP passenger is waiting.
+ * <p>
+ * With a batch size above one, a counter drains up to that many passengers in one queue operation and checks
+ * them in with processBatch: one flight lock and one hold update per flight, and one observer notification per batch.
+ */
+public class CheckInCounter implements Runnable, Observer {
+    private static final long IDLE_WAIT = 200; // Longest wait for a passenger before checking for shutdown, in milliseconds
+    private static final int PROCESS_TIME = Integer.getInteger("counter.process.time", 1000); // Set with -Dcounter.process.time=N, 0 skips the service time
+    private static final int DEFAULT_BATCH_SIZE = Integer.getInteger("counter.batch.size", 1); // Passengers taken per queue operation
     private final int counterId;
     private final PassengerQueue queue;
     private final boolean isVIP;
     private final FlightList fltList;
     private final List<Observer> observers;
-    private Passenger currentPassenger;
+    private final ScheduledExecutorService scheduler; // null when the counter runs on its own thread
+    private final Runnable wakeUp;
+    private final Random random;
+    private volatile Passenger currentPassenger;
     private volatile boolean running;
+    private volatile boolean finished;
+    private volatile PassengerQueue otherQueue; // null while stealing is disabled
+    private volatile IntSupplier stealThreshold;
+    private volatile int batchSize;
+    private Thread thread;
 
     /**
-     * Constructs a CheckInCounter with specified ID, passenger queue, and VIP status.
+     * Constructs a CheckInCounter with specified ID, passenger queue, and VIP status, that runs on its own thread.
      *
      * @param counterId Unique ID for the counter.
      * @param queue     Passengers queue for this counter.
      * @param isVIP     True if it's a VIP counter, false otherwise.
      */
     public CheckInCounter(int counterId, PassengerQueue queue, boolean isVIP, FlightList fltList) {
+        this(counterId, queue, isVIP, fltList, null);
+    }
+
+    /**
+     * Constructs a CheckInCounter with specified ID, passenger queue, and VIP status.
+     *
+     * @param counterId Unique ID for the counter.
+     * @param queue     Passengers queue for this counter.
+     * @param isVIP     True if it's a VIP counter, false otherwise.
+     * @param scheduler The pool the counter runs its tasks on, or null to give it its own thread.
+     */
+    public CheckInCounter(int counterId, PassengerQueue queue, boolean isVIP, FlightList fltList, ScheduledExecutorService scheduler) {
         this.counterId = counterId;
         this.queue = queue;
         this.isVIP = isVIP;
         this.fltList = fltList;
+        this.scheduler = scheduler;
+        this.wakeUp = () -> scheduler.execute(this::step);
+        this.random = new Random();
+        this.batchSize = Math.max(1, DEFAULT_BATCH_SIZE);
         running = true;
+        finished = false;
         observers = new ArrayList<>();
         currentPassenger = null;
     }
 
+    /**
+     * Lets the counter help with the other queue while its own queue is empty.
+     *
+     * @param otherQueue     The queue of the other counter type.
+     * @param stealThreshold Returns the backlog the other queue must exceed before this counter steals from it,
+     *                       a negative value disables stealing.
+     */
+    public void enableStealing(PassengerQueue otherQueue, IntSupplier stealThreshold) {
+        this.stealThreshold = stealThreshold;
+        this.otherQueue = otherQueue;
+    }
+
+    /**
+     * Sets how many passengers the counter takes from its queue at once.
+     *
+     * @param batchSize The largest batch, 1 serves passengers one at a time.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Starts serving passengers, on the scheduler if one was given, otherwise on a new thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            scheduler.execute(this::step);
+        } else if (thread == null) {
+            thread = new Thread(this, "check-in-counter-" + counterId);
+            thread.start();
+        }
+    }
+
     /**
      * The main run method for the CheckInCounter thread. Continuously processes passengers from the queue,
-     * handling their check-ins and sleeping when no passengers are present.
+     * handling their check-ins. An idle counter waits in the queue and wakes as soon as a passenger is enqueued.
      */
     @Override
     public void run() {
-        Random random = new Random();
-        int processTime = 1000; //TODO Time can be changed
         while (running) {
             currentPassenger = null;
-            // Synchronized block to ensure thread-safe access to the queue
-            synchronized (queue) {
-                if (!queue.isEmpty()) {
-                    currentPassenger = queue.dequeue(); // dequeue the next currentPassenger
-                }
-            }
             try {
-                if (currentPassenger != null) {
-                    String startMsg = String.format("Passenger %s will be processed by %s Counter %d.",
-                            currentPassenger.getRefCode(), counterType(), getCounterId());
-                    Log.generateLog(startMsg);
-                    processPassenger(currentPassenger);
+                List<Passenger> batch = pollPassengers();
+                if (batch.isEmpty()) {
+                    // Wake up now and then to notice shutdown or a backlog in the other queue
+                    Passenger passenger = queue.take(IDLE_WAIT, TimeUnit.MILLISECONDS);
+                    if (passenger != null) {
+                        batch = new ArrayList<>();
+                        batch.add(passenger);
+                        if (batchSize > 1) {
+                            batch.addAll(queue.drain(batchSize - 1));
+                        }
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    serve(batch);
                     // random time for process
-                    Thread.sleep(processTime + random.nextInt(1000));
-
-                } else {
-                    Thread.sleep(processTime);
+                    Thread.sleep(serviceTime(batch.size()));
                 }
             } catch (InterruptedException e) {
                 System.out.println("Counter " + getCounterId() + " interrupted.");
                 Thread.currentThread().interrupt();
-            } catch (AllExceptions.NumberErrorException | AllExceptions.NoMatchingFlightException |
-                     AllExceptions.NoMatchingRefException e) {
-                throw new RuntimeException(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Serves at most one batch of passengers as a task on the scheduler, then schedules the next step after the
+     * service time. If the queue is empty the counter leaves a wake-up in the queue instead of holding a pool thread.
+     */
+    private void step() {
+        currentPassenger = null;
+        if (!running) {
+            finished = true;
+            return;
+        }
+        List<Passenger> batch = pollPassengers();
+        if (batch.isEmpty()) {
+            queue.onNextPassenger(wakeUp);
+            // Shutdown may have come after the check above and missed the wake-up
+            if (!running && queue.cancelNextPassenger(wakeUp)) {
+                finished = true;
+            } else if (otherQueue != null) {
+                // Look at the other queue again later; whoever withdraws the wake-up continues the counter
+                scheduler.schedule(() -> {
+                    if (queue.cancelNextPassenger(wakeUp)) {
+                        step();
+                    }
+                }, IDLE_WAIT, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+        try {
+            serve(batch);
+        } catch (RuntimeException e) {
+            // The scheduler would swallow the exception, so stop the counter visibly
+            running = false;
+            finished = true;
+            Log.generateLog(String.format("%s counter %d stopped: %s", counterType(), getCounterId(), e));
+            throw e;
+        }
+        scheduler.schedule(this::step, serviceTime(batch.size()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes the next batch from the own queue without waiting, or a single passenger from the other queue.
+     *
+     * @return The passengers to serve next, empty if there are none.
+     */
+    private List<Passenger> pollPassengers() {
+        List<Passenger> batch;
+        if (batchSize > 1) {
+            batch = queue.drain(batchSize);
+        } else {
+            batch = new ArrayList<>(1);
+            Passenger passenger = queue.dequeue();
+            if (passenger != null) {
+                batch.add(passenger);
+            }
+        }
+        if (batch.isEmpty()) {
+            Passenger stolen = steal();
+            if (stolen != null) {
+                batch.add(stolen);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Takes the next passenger from the other queue if its backlog exceeds the steal threshold.
+     *
+     * @return The stolen passenger, or null if stealing is disabled or not needed.
+     */
+    private Passenger steal() {
+        PassengerQueue other = otherQueue;
+        if (other == null) {
+            return null;
+        }
+        int threshold = stealThreshold.getAsInt();
+        int backlog = other.size();
+        if (threshold < 0 || backlog <= threshold) {
+            return null;
+        }
+        Passenger passenger = other.dequeue();
+        if (passenger != null) {
+            Log.generateLog(String.format("Idle %s counter %d took passenger %s from the %s queue, which had %d waiting.",
+                    counterType(), getCounterId(), passenger.getRefCode(), isVIP ? "regular" : "VIP", backlog));
+        }
+        return passenger;
+    }
+
+    /**
+     * Logs the start of the service and checks the passengers in, one by one or as a batch.
+     * A passenger who cannot be checked in is logged and left out; the counter keeps running.
+     *
+     * @param batch The passengers taken from the queue.
+     */
+    private void serve(List<Passenger> batch) {
+        currentPassenger = batch.get(0);
+        try {
+            if (batch.size() == 1) {
+                Passenger passenger = batch.get(0);
+                String startMsg = String.format("Passenger %s will be processed by %s Counter %d.",
+                        passenger.getRefCode(), counterType(), getCounterId());
+                Log.generateLog(startMsg);
+                processPassenger(passenger);
+            } else {
+                Log.generateLog(String.format("%d passengers will be processed by %s Counter %d.",
+                        batch.size(), counterType(), getCounterId()));
+                processBatch(batch);
             }
+        } catch (AllExceptions.NumberErrorException | AllExceptions.NoMatchingFlightException |
+                 AllExceptions.NoMatchingRefException e) {
+            Log.generateLog(String.format("Passenger %s could not be checked in at %s counter %d: %s",
+                    batch.get(0).getRefCode(), counterType(), getCounterId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * @param passengers The number of passengers served.
+     * @return A random service time for the passengers, in milliseconds, 0 if service time is not modelled.
+     */
+    private long serviceTime(int passengers) {
+        if (PROCESS_TIME <= 0) {
+            return 0;
+        }
+        long time = 0;
+        for (int i = 0; i < passengers; i++) {
+            time += PROCESS_TIME + random.nextInt(1000);
         }
+        return time;
     }
 
     @Override
@@ -106,11 +316,35 @@ public class CheckInCounter extends Thread implements Observer {
      */
     public void shutdown() {
         running = false;
+        // An idle task counter is only parked in the queue, so it is done once the wake-up is withdrawn
+        if (scheduler != null && queue.cancelNextPassenger(wakeUp)) {
+            finished = true;
+        }
+    }
+
+    /**
+     * Checks if the counter is still working, including a passenger it serves after shutdown was requested.
+     *
+     * @return True until the thread has ended or the last task has run.
+     */
+    public boolean isAlive() {
+        if (scheduler != null) {
+            return !finished;
+        }
+        Thread counterThread;
+        synchronized (this) {
+            counterThread = thread;
+        }
+        return counterThread != null && counterThread.isAlive();
     }
 
     /**
      * Processes a passenger's check-in by verifying eligibility, checking flight status, handling baggage, and updating check-in status.
-     * Notifies observers upon successful check-in. Returns false if verification fails, flight is not found, or has already taken off.
+     * Notifies observers upon successful check-in. Returns false if verification fails, flight is not found, has already taken off,
+     * or the passenger is already checked in.
+     * <p>
+     * The flight is changed under its striped lock from FlightList.lockFor, so check-ins for different flights run in parallel
+     * while the baggage and the check-in flag of one flight change together, and never after the takeoff.
      *
      * @param passenger The passenger to process.
      * @return True if the passenger is successfully checked in, false otherwise.
@@ -119,42 +353,159 @@ public class CheckInCounter extends Thread implements Observer {
      * @throws AllExceptions.NoMatchingRefException    If the passenger's reference code does not match.
      */
 
-    public synchronized boolean processPassenger(Passenger passenger) throws AllExceptions.NumberErrorException, AllExceptions.NoMatchingFlightException, AllExceptions.NoMatchingRefException {
+    public boolean processPassenger(Passenger passenger) throws AllExceptions.NumberErrorException, AllExceptions.NoMatchingFlightException, AllExceptions.NoMatchingRefException {
         if (!verifyPassenger(passenger)) {
             Log.generateLog(String.format("Passenger %s verification failed.", passenger.getRefCode()));
             return false;
         }
 
-        String flightCode = passenger.getFlightCode();
-        Flight flight = fltList.findByCode(flightCode);
-        if (flight == null || flight.getIsTakenOff()) {
-            Log.generateLog(String.format("Cannot check-in passenger %s: Flight has already taken off or flight info not found.", passenger.getRefCode()));
-            return false;
-        }
-
+        // Everything that can raise an error dialog is done before the flight is locked
+        Flight flight = fltList.findByCode(passenger.getFlightCode());
         Passenger passengerInFlight = flight.getPassengerInFlight().findByRefCode(passenger.getRefCode());
         handleBaggage(passenger.getHisBaggageList());
-        Log.generateLog(passenger.pay());
 
-        for (Baggage baggage : passenger.getHisBaggageList().getBaggageList()) {
-            flight.getBaggageInFlight().addBaggage(baggage);
+        Lock flightLock = fltList.lockFor(flight);
+        flightLock.lock();
+        try {
+            if (flight.getIsTakenOff()) {
+                Log.generateLog(String.format("Cannot check-in passenger %s: Flight has already taken off or flight info not found.", passenger.getRefCode()));
+                return false;
+            }
+            if (passengerInFlight.getIfCheck()) {
+                Log.generateLog(String.format("Passenger %s has already checked in.", passenger.getRefCode()));
+                return false;
+            }
+            for (Baggage baggage : passenger.getHisBaggageList()) {
+                flight.addBaggageToFlight(baggage);
+            }
+            passengerInFlight.checkIn();
+        } finally {
+            flightLock.unlock();
         }
-        Log.generateLog(String.format("The baggage of Passenger %s has been placed on flight %s", passenger.getRefCode(), passenger.getFlightCode()));
 
-        passengerInFlight.checkIn();
+        Log.generateLog(passenger.pay());
+        Log.generateLog(String.format("The baggage of Passenger %s has been placed on flight %s", passenger.getRefCode(), passenger.getFlightCode()));
         Log.generateLog(String.format("Passenger %s has successfully checked in at %s counter %d.", passenger.getRefCode(), counterType(), getCounterId()));
-
         notifyObservers();
         return true;
     }
 
+    /**
+     * Checks in a batch of passengers. The passengers are grouped by flight, and each group is committed under
+     * its flight's lock in one step: the baggage of the whole group goes into the hold with one update, then the
+     * group is checked in. Observers are notified once for the batch.
+     * <p>
+     * A passenger whose flight or booking cannot be found, or whose baggage fails the check, is logged and left
+     * out before anything of the group is paid or committed; the other passengers of the batch are still served.
+     *
+     * @param passengers The passengers to process.
+     * @return The number of passengers checked in.
+     */
+    public int processBatch(List<Passenger> passengers) {
+        Map<Flight, List<Passenger>> groups = new LinkedHashMap<>();
+        for (Passenger passenger : passengers) {
+            if (!verifyPassenger(passenger)) {
+                Log.generateLog(String.format("Passenger %s verification failed.", passenger.getRefCode()));
+                continue;
+            }
+            Flight flight = fltList.findByCode(passenger.getFlightCode(), null);
+            if (flight == null) {
+                logSkipped(passenger, String.format("flight %s not found", passenger.getFlightCode()));
+                continue;
+            }
+            groups.computeIfAbsent(flight, f -> new ArrayList<>()).add(passenger);
+        }
+
+        int checkedIn = 0;
+        for (Map.Entry<Flight, List<Passenger>> group : groups.entrySet()) {
+            checkedIn += commitGroup(group.getKey(), group.getValue());
+        }
+        if (checkedIn > 0) {
+            notifyObservers();
+        }
+        return checkedIn;
+    }
+
+    /**
+     * Checks in the passengers of one flight under the flight's lock, loading all their baggage in one step.
+     * Every passenger is validated first, so a failing one is left out before any payment is logged.
+     *
+     * @param flight The flight of the passengers.
+     * @param group  The passengers to check in.
+     * @return The number of passengers checked in.
+     */
+    private int commitGroup(Flight flight, List<Passenger> group) {
+        // Resolve and validate the passengers first, without lock and without error dialogs
+        List<Passenger> queued = new ArrayList<>();
+        List<Passenger> booked = new ArrayList<>(); // the passenger of the flight for each queued passenger
+        for (Passenger passenger : group) {
+            Passenger passengerInFlight = flight.getPassengerInFlight().findByRefCode(passenger.getRefCode(), null);
+            if (passengerInFlight == null) {
+                logSkipped(passenger, String.format("no booking on flight %s", flight.getFlightCode()));
+            } else if (!baggageWithinLimits(passenger.getHisBaggageList())) {
+                logSkipped(passenger, "baggage over the weight or size limit");
+            } else {
+                queued.add(passenger);
+                booked.add(passengerInFlight);
+            }
+        }
+
+        // Passengers of the flight that are checked in now, and the queued passengers carrying their bags
+        Set<Passenger> boarding = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Passenger> accepted = new ArrayList<>();
+        List<Baggage> baggage = new ArrayList<>();
+        Lock flightLock = fltList.lockFor(flight);
+        flightLock.lock();
+        try {
+            if (flight.getIsTakenOff()) {
+                for (Passenger passenger : group) {
+                    Log.generateLog(String.format("Cannot check-in passenger %s: Flight has already taken off or flight info not found.", passenger.getRefCode()));
+                }
+                return 0;
+            }
+            for (int i = 0; i < queued.size(); i++) {
+                Passenger passengerInFlight = booked.get(i);
+                if (passengerInFlight.getIfCheck() || !boarding.add(passengerInFlight)) {
+                    Log.generateLog(String.format("Passenger %s has already checked in.", queued.get(i).getRefCode()));
+                    continue;
+                }
+                accepted.add(queued.get(i));
+                queued.get(i).getHisBaggageList().forEach(baggage::add);
+            }
+            flight.addBaggageGroupToFlight(baggage);
+            for (Passenger passengerInFlight : boarding) {
+                passengerInFlight.checkIn();
+            }
+        } finally {
+            flightLock.unlock();
+        }
+
+        for (Passenger passenger : accepted) {
+            Log.generateLog(passenger.pay());
+        }
+        Log.generateLog(String.format("%d passengers of flight %s have successfully checked in at %s counter %d with %d bags.",
+                boarding.size(), flight.getFlightCode(), counterType(), getCounterId(), baggage.size()));
+        return boarding.size();
+    }
+
+    /**
+     * Logs a passenger left out of a batch because of an error.
+     *
+     * @param passenger The passenger left out.
+     * @param reason    Why the check-in was stopped.
+     */
+    private void logSkipped(Passenger passenger, String reason) {
+        Log.generateLog(String.format("Passenger %s could not be checked in at %s counter %d and was left out of the batch: %s",
+                passenger.getRefCode(), counterType(), getCounterId(), reason));
+    }
+
     /**
      * Verifies if a passenger has a valid reference code, indicating they are eligible for check-in.
      *
      * @param passenger The passenger to verify.
      * @return True if the passenger has a correct reference code, false if the reference code is null.
      */
-    private synchronized boolean verifyPassenger(Passenger passenger) {
+    private boolean verifyPassenger(Passenger passenger) {
         return passenger.getRefCode() != null;
     }
 
@@ -165,11 +516,26 @@ public class CheckInCounter extends Thread implements Observer {
      * @throws AllExceptions.NumberErrorException if any baggage fails the check.
      */
     private void handleBaggage(BaggageList baggageList) throws AllExceptions.NumberErrorException {
-        for (Baggage baggage : baggageList.getBaggageList()) {
+        for (Baggage baggage : baggageList) {
             baggage.checkBaggage();
         }
     }
 
+    /**
+     * Checks all baggage in the list without raising an error dialog.
+     *
+     * @param baggageList List of baggage to check.
+     * @return True if every bag is within the limits, false otherwise.
+     */
+    private boolean baggageWithinLimits(BaggageList baggageList) {
+        for (Baggage baggage : baggageList) {
+            if (!baggage.isWithinLimits()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean getStatus() {
         return this.running;
     }
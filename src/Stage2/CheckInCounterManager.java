@@ -5,21 +5,40 @@ import Stage1.modules.Passenger;
 import Stage2.GUI.GUI;
 
 import javax.swing.*;
-import java.util.Timer;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CheckInCounterManager implements Observer {
-    private static final int OPEN_THRESHOLD = 15; // Setting the threshold for adding counters
-    private static final int CLOSE_THRESHOLD = 10; //Setting the threshold for deleting counters
     private static final int MAX_VIP_COUNTER = 3;
     private static final int MAX_REGULAR_COUNTER = 5;
     private static final int MIN_VIP_COUNTER = 1;
     private static final int MIN_REGULAR_COUNTER = 1;
-    private final List<CheckInCounter> counters; // all counters
+    // Backlog of the other queue above which an idle counter helps out, set with -Dcounter.steal.threshold=N
+    private static final int DEFAULT_STEAL_THRESHOLD = Integer.getInteger("counter.steal.threshold", 10);
+    // Shortest time between two scaling checks in milliseconds, set with -Dcounter.scaling.interval=N
+    private static final long SCALING_INTERVAL = Long.getLong("counter.scaling.interval", 50);
+    private static final long RECHECK_INTERVAL = 1000; // Check again after this long while counters are not at rest
+    private final CounterRegistry counters; // all counters
     private final PassengerQueue vipQueue;
     private final PassengerQueue regularQueue;
     private final FlightList flightList;
     private final List<Observer> observers;
+    private final ScheduledExecutorService counterScheduler; // null gives every counter its own thread
+    private volatile int stealThreshold;
+    private final ScalingMode scalingMode;
+    private final ScalingPolicy vipScaling;
+    private final ScalingPolicy regularScaling;
+    private int countersOpened; // counters opened and closed by scaling, to compare the policies
+    private int countersClosed;
+    private final ScheduledThreadPoolExecutor scalingExecutor;
+    private final AtomicBoolean scalingPending; // a check is scheduled and will see every change made until it runs
+    private volatile long lastScaling;
+    private ScheduledFuture<?> recheck; // only used on the scaling thread
     private final GUI gui;
 
     /**
@@ -29,11 +48,52 @@ public class CheckInCounterManager implements Observer {
      * @param flightList The list of flights associated with the passengers.
      */
     public CheckInCounterManager(FlightList flightList) {
-        this.counters = new LinkedList<>();
-        this.vipQueue = new PassengerQueue();
-        this.regularQueue = new PassengerQueue();
+        this(flightList, null);
+    }
+
+    /**
+     * Constructs a CheckInCounterManager whose counters run as tasks on a shared scheduler.
+     *
+     * @param flightList       The list of flights associated with the passengers.
+     * @param counterScheduler The pool all counters run on, or null to give every counter its own thread.
+     */
+    public CheckInCounterManager(FlightList flightList, ScheduledExecutorService counterScheduler) {
+        this(flightList, counterScheduler, QueuePolicy.FIFO);
+    }
+
+    /**
+     * Constructs a CheckInCounterManager whose queues serve passengers in the order of the given policy.
+     *
+     * @param flightList       The list of flights associated with the passengers.
+     * @param counterScheduler The pool all counters run on, or null to give every counter its own thread.
+     * @param queuePolicy      The discipline of both passenger queues.
+     */
+    public CheckInCounterManager(FlightList flightList, ScheduledExecutorService counterScheduler, QueuePolicy queuePolicy) {
+        this(flightList, counterScheduler, queuePolicy, ScalingMode.THRESHOLD);
+    }
+
+    /**
+     * Constructs a CheckInCounterManager that opens and closes counters with the given scaling policy.
+     *
+     * @param flightList       The list of flights associated with the passengers.
+     * @param counterScheduler The pool all counters run on, or null to give every counter its own thread.
+     * @param queuePolicy      The discipline of both passenger queues.
+     * @param scalingMode      The policy deciding how many counters of each type are open.
+     */
+    public CheckInCounterManager(FlightList flightList, ScheduledExecutorService counterScheduler,
+                                 QueuePolicy queuePolicy, ScalingMode scalingMode) {
+        this.counterScheduler = counterScheduler;
+        this.scalingMode = scalingMode;
+        this.vipScaling = scalingMode.create(MAX_VIP_COUNTER);
+        this.regularScaling = scalingMode.create(MAX_REGULAR_COUNTER);
+        this.stealThreshold = DEFAULT_STEAL_THRESHOLD;
+        this.counters = new CounterRegistry();
+        this.vipQueue = new PassengerQueue(queuePolicy.create(flightList));
+        this.regularQueue = new PassengerQueue(queuePolicy.create(flightList));
         this.flightList = flightList;
         this.observers = new ArrayList<>();
+        this.scalingExecutor = createScalingExecutor();
+        this.scalingPending = new AtomicBoolean();
         this.createNewCounter(true);  // Id: 0
         this.createNewCounter(false); // Id: 1
         this.gui = new GUI(this.vipQueue, this.regularQueue, this.counters, this.flightList);
@@ -58,6 +118,32 @@ public class CheckInCounterManager implements Observer {
     }
 
 
+    public int getStealThreshold() {
+        return stealThreshold;
+    }
+
+    /**
+     * Sets the backlog the other queue must exceed before an idle counter takes passengers from it.
+     * Open counters pick up the new value right away.
+     *
+     * @param stealThreshold The backlog threshold, a negative value disables stealing.
+     */
+    public void setStealThreshold(int stealThreshold) {
+        this.stealThreshold = stealThreshold;
+    }
+
+    public ScalingMode getScalingMode() {
+        return scalingMode;
+    }
+
+    /**
+     * @return How many counters the scaling policy opened and closed so far, for the end-of-run report.
+     */
+    public synchronized String getScalingSummary() {
+        return String.format("Scaling policy %s opened %d and closed %d counters.",
+                scalingMode, countersOpened, countersClosed);
+    }
+
     @Override
     public void update() {
         if (gui != null) {
@@ -82,58 +168,65 @@ public class CheckInCounterManager implements Observer {
         getQueueType(passenger.isVIP()).enqueue(passenger);
     }
 
+    /**
+     * Stops the scaling checks, waiting for a running one to finish so it cannot open a counter afterwards,
+     * and then shuts down all counters.
+     */
     public void stopAllCounters() {
-        for (CheckInCounter counter : counters) {
+        scalingExecutor.shutdown();
+        try {
+            scalingExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CheckInCounter counter : counters.removeAll()) {
             counter.shutdown();
         }
-        counters.clear();
     }
 
     /**
      * Close a VIP or regular counter if conditions allow.
      *
      * @param isVIP True to close a VIP counter, false for a regular counter.
+     * @return True if a counter was closed, false otherwise.
      */
-    public synchronized void closeCounter(boolean isVIP) {
+    public synchronized boolean closeCounter(boolean isVIP) {
         if (!canCloseCounter(isVIP)) {
-            return;
+            return false;
         }
-        CheckInCounter counterToClose = null;
-        for (int i = counters.size() - 1; i >= 0; i--) {
-            CheckInCounter counter = counters.get(i);
-            if (counter.isVIP() == isVIP && counter.getStatus()) {
-                counterToClose = counter;
-                break;
-            }
+        CheckInCounter counterToClose = counters.lastOpen(isVIP);
+        if (counterToClose == null || !counters.close(counterToClose)) {
+            return false;
         }
+        counterToClose.shutdown();
+        int counterId = counterToClose.getCounterId();
 
-        if (counterToClose != null) {
-            counterToClose.shutdown();
-            int counterId = counterToClose.getCounterId();
-
-            String closeMsg = String.format("Close a %s counter with ID: %d.", getType(isVIP), counterId);
-            Log.generateLog(closeMsg);
+        String closeMsg = String.format("Close a %s counter with ID: %d.", getType(isVIP), counterId);
+        Log.generateLog(closeMsg);
 
-            String counterMsg = String.format("There are %d people in the %s queue and a total of %d counter is now open.",
-                    getQueueType(isVIP).size(), getType(isVIP), getOpenCount(isVIP));
-            Log.generateLog(counterMsg);
-        }
+        String counterMsg = String.format("There are %d people in the %s queue and a total of %d counter is now open.",
+                getQueueType(isVIP).size(), getType(isVIP), getOpenCount(isVIP));
+        Log.generateLog(counterMsg);
+        return true;
     }
 
     /**
      * Create a VIP or regular counter if conditions allow.
      *
      * @param isVIP True to create a VIP counter, false for a regular counter.
+     * @return True if a counter was opened, false if the maximum is already open.
      */
-    void createNewCounter(boolean isVIP) {
-        if (!canCreateCounter(isVIP)) {
-            return;
+    boolean createNewCounter(boolean isVIP) {
+        // The registry checks the limit and takes the ID in one step, so two callers cannot exceed it
+        CheckInCounter newCounter = counters.open(isVIP, isVIP ? MAX_VIP_COUNTER : MAX_REGULAR_COUNTER,
+                counterId -> new CheckInCounter(counterId, getQueueType(isVIP), isVIP, flightList, counterScheduler));
+        if (newCounter == null) {
+            return false;
         }
-        int counterId = calculateCounterId(isVIP);
-        CheckInCounter newCounter = new CheckInCounter(counterId, getQueueType(isVIP), isVIP, flightList);
+        int counterId = newCounter.getCounterId();
         newCounter.registerObserver(this);
+        newCounter.enableStealing(getQueueType(!isVIP), this::getStealThreshold);
         newCounter.start();
-        counters.add(newCounter);
 
         String openMsg = String.format("Open a new %s counter with ID: %s.", getType(isVIP), counterId);
         Log.generateLog(openMsg);
@@ -141,21 +234,85 @@ public class CheckInCounterManager implements Observer {
         String counterMsg = String.format("There are %d people in the %s queue and a total of %d counter is now open.",
                 getQueueType(isVIP).size(), getType(isVIP), getOpenCount(isVIP));
         Log.generateLog(counterMsg);
+        return true;
+    }
+
+    private static ScheduledThreadPoolExecutor createScalingExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "counter-scaling");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Checks still waiting when the manager stops are dropped rather than run
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
     }
 
+    /**
+     * Checks the counters whenever the length of a queue changes, instead of polling them.
+     * Both queues start empty with the minimum counters open, so nothing is checked before the first change.
+     */
     private void startMonitoring() {
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                checkAndAdjustCounters();
-                removeTerminatedCounters();
-            }// Adjustment of the number of counters at regular intervals
-        }, 0, 500); //TODO Time can be changed
+        vipQueue.registerObserver(this::requestScaling);
+        regularQueue.registerObserver(this::requestScaling);
     }
 
     /**
-     * Periodically checks and adjusts the number of counters for both VIP and regular queues.
+     * Schedules a scaling check after a queue changed. Changes made before the check runs are covered by it,
+     * and checks run at least SCALING_INTERVAL apart, so a burst of passengers costs one check and an idle
+     * queue costs none.
+     */
+    private void requestScaling() {
+        if (!scalingPending.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = Math.max(0, lastScaling + SCALING_INTERVAL - System.currentTimeMillis());
+        try {
+            scalingExecutor.schedule(this::runScaling, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The manager has been stopped, leave the flag set so no further check is attempted
+        }
+    }
+
+    /**
+     * Runs one scaling check on the scaling thread. While a queue has passengers or more than the minimum
+     * counters are open, a policy may still want to change something without any new event, for example
+     * once its cool-down has passed, so another check is scheduled after RECHECK_INTERVAL.
+     */
+    private void runScaling() {
+        scalingPending.set(false); // changes from now on need another check
+        lastScaling = System.currentTimeMillis();
+        try {
+            checkAndAdjustCounters();
+            removeTerminatedCounters();
+        } catch (RuntimeException e) {
+            // A failed check must not stop the later ones
+            Log.generateLog("Counter scaling failed: " + e);
+        }
+        if (recheck != null) {
+            recheck.cancel(false);
+            recheck = null;
+        }
+        if (!isAtRest()) {
+            try {
+                recheck = scalingExecutor.schedule(this::requestScaling, RECHECK_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // The manager has been stopped
+            }
+        }
+    }
+
+    /**
+     * @return True if both queues are empty and only the minimum counters are open.
+     */
+    private boolean isAtRest() {
+        return vipQueue.isEmpty() && regularQueue.isEmpty()
+                && getOpenCount(true) <= MIN_VIP_COUNTER && getOpenCount(false) <= MIN_REGULAR_COUNTER;
+    }
+
+    /**
+     * Checks and adjusts the number of counters for both VIP and regular queues.
      */
     private synchronized void checkAndAdjustCounters() {
         adjustCountersBasedOnQueueSize(true);
@@ -163,16 +320,17 @@ public class CheckInCounterManager implements Observer {
     }
 
     /**
-     * Adjusts counters based on the current size of a specific queue.
+     * Adjusts counters as the scaling policy of a specific queue decides.
      *
      * @param isVIP Specifies if the queue is for VIP passengers.
      */
     private void adjustCountersBasedOnQueueSize(boolean isVIP) {
-        int queueSize = getQueueType(isVIP).size();
-        int openCount = getOpenCount(isVIP);
-        int excess = Math.max(0, queueSize - (openCount * OPEN_THRESHOLD));
-        int deficit = Math.max(0, (openCount * CLOSE_THRESHOLD) - queueSize);
-        int countersToAdjust = excess / OPEN_THRESHOLD - deficit / CLOSE_THRESHOLD;
+        ScalingPolicy scaling = isVIP ? vipScaling : regularScaling;
+        int countersToAdjust = scaling.countersToAdjust(getQueueType(isVIP), getOpenCount(isVIP), System.currentTimeMillis());
+        if (countersToAdjust != 0) {
+            Log.generateLog(String.format("%s scaling of the %s queue (%s): %+d counters.",
+                    scaling.getName(), getType(isVIP), scaling.describe(), countersToAdjust));
+        }
 
         adjustCounters(countersToAdjust, isVIP);
     }
@@ -189,37 +347,32 @@ public class CheckInCounterManager implements Observer {
         if (getOpenCount(isVIP) == 0 && !targetQueue.isEmpty()) {
             countersToAdjust = 1;
         }
+        boolean changed = false;
         if (countersToAdjust != 0) {
             for (int i = 0; i < Math.abs(countersToAdjust); i++) {
-                if (countersToAdjust > 0) {
-                    createNewCounter(isVIP);
+                // Count only the counters that really opened or closed, a call at the limit changes nothing
+                if (countersToAdjust > 0 && createNewCounter(isVIP)) {
+                    countersOpened++;
+                    changed = true;
                 }
-                if (countersToAdjust < 0) {
-                    closeCounter(isVIP);
+                if (countersToAdjust < 0 && closeCounter(isVIP)) {
+                    countersClosed++;
+                    changed = true;
                 }
             }
         }
-        update();
+        // Redraw only when the counters changed, the counters report their own check-ins
+        if (changed) {
+            update();
+        }
     }
 
     /**
      * Removes terminated counter threads to prevent memory leaks and keep the list current.
      */
     private synchronized void removeTerminatedCounters() {
-        counters.removeIf(counter -> !counter.isAlive());
-    }
-
-    /**
-     * Checks if a new counter can be opened based on maximum counter limits.
-     *
-     * @param isVIP True for VIP counters, false for regular counters.
-     * @return True if a new counter can be created, false otherwise.
-     */
-    private boolean canCreateCounter(boolean isVIP) {
-        if (isVIP) {
-            return getOpenCount(true) < MAX_VIP_COUNTER;
-        } else {
-            return getOpenCount(false) < MAX_REGULAR_COUNTER;
+        if (counters.removeIf(counter -> !counter.isAlive())) {
+            update();
         }
     }
 
@@ -239,53 +392,13 @@ public class CheckInCounterManager implements Observer {
     }
 
     /**
-     * Counts the number of open counters for either VIP or regular service.
+     * Counts the number of open counters for either VIP or regular service, in constant time.
      *
      * @param isVIP Specifies the type of counter to count.
      * @return The number of open counters for the specified type.
      */
     public int getOpenCount(boolean isVIP) {
-        int count = 0;
-        for (CheckInCounter counter : counters) {
-            if (counter.isVIP() == isVIP && counter.getStatus()) {
-                count++;
-            }
-        }
-        return count;
-    }
-
-    /**
-     * Checks if a counter ID already exists to avoid duplicates.
-     *
-     * @param counterId The ID to check for existence.
-     * @return True if the ID exists, false otherwise.
-     */
-    private boolean counterIdExists(int counterId) {
-        for (CheckInCounter counter : counters) {
-            if (counter.getCounterId() == counterId) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Calculates a unique ID for a new counter, avoiding conflicts and ensuring uniqueness.
-     *
-     * @param isVIP Specifies if the counter is for VIP service.
-     * @return A unique counter ID.
-     */
-    private int calculateCounterId(boolean isVIP) {
-        int counterId;
-        if (isVIP) {
-            counterId = getOpenCount(true) * 5;
-        } else {
-            counterId = getOpenCount(false);
-            while (counterId % 5 == 0 || counterIdExists(counterId)) {
-                counterId++;
-            }
-        }
-        return counterId;
+        return counters.getOpenCount(isVIP);
     }
 
     private String getType(boolean isVIP) {
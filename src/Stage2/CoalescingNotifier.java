@@ -0,0 +1,108 @@
+package Stage2;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The CoalescingNotifier class delivers change notifications at most once per interval.
+ * <p>
+ * Each watched source exposes a version number that grows on every real change, such as Flight.getVersion.
+ * The notifier reads the versions once per interval on its own daemon thread and runs a source's notify
+ * action once if its version moved, however many changes happened in between. Reading a source never
+ * triggers an update, so rendering the GUI cannot cause more notifications.
+ */
+public class CoalescingNotifier {
+    private final long intervalMillis;
+    private final List<Watch> watches;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a CoalescingNotifier.
+     *
+     * @param intervalMillis The shortest time between two updates of the same source, in milliseconds.
+     */
+    public CoalescingNotifier(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+        this.watches = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Watches a source. The notify action runs in the interval after the version changes; the version
+     * at the time of the call counts as already delivered.
+     *
+     * @param version Returns the current version of the source.
+     * @param notify  Sends the update, usually the source's notifyObservers.
+     */
+    public void watch(LongSupplier version, Runnable notify) {
+        watches.add(new Watch(version, notify));
+    }
+
+    /**
+     * Starts checking the watched sources once per interval.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coalescing-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::deliver, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the notifier after delivering the changes that are still pending.
+     */
+    public synchronized void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+        deliver();
+    }
+
+    /**
+     * Runs the notify action of every source whose version changed since its last update.
+     */
+    private void deliver() {
+        for (Watch watch : watches) {
+            long version = watch.version.getAsLong();
+            if (version != watch.delivered) {
+                watch.delivered = version;
+                try {
+                    watch.notify.run();
+                } catch (RuntimeException e) {
+                    // One failing observer must not stop the updates of the others
+                    Log.generateLog("Observer update failed: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A watched source and the version last delivered for it.
+     */
+    private static class Watch {
+        private final LongSupplier version;
+        private final Runnable notify;
+        private volatile long delivered;
+
+        Watch(LongSupplier version, Runnable notify) {
+            this.version = version;
+            this.notify = notify;
+            this.delivered = version.getAsLong();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package Stage2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * The check-in counters of a CheckInCounterManager, shared with the scaling thread and the GUI.
+ * <p>
+ * Counter IDs come from one bitset per counter type, so a new counter takes the lowest free ID of its type
+ * without searching the counters. VIP counters use every fifth ID (0, 5, 10, ...) and regular counters the
+ * IDs in between (1, 2, 3, 4, 6, ...). An ID stays taken until the counter is removed, so a closed counter
+ * still serving its last passenger keeps it. The open counts are atomic and read without a lock, and
+ * iterating the registry walks a snapshot, so it never fails while counters are opened or closed.
+ */
+public class CounterRegistry implements Iterable<CheckInCounter> {
+    private final ConcurrentSkipListMap<Integer, CheckInCounter> counters; // by ID
+    private final BitSet vipIds; // taken VIP slots, guarded by this
+    private final BitSet regularIds;
+    private final BitSet vipOpen; // open VIP slots, guarded by this
+    private final BitSet regularOpen;
+    private final AtomicInteger vipOpenCount;
+    private final AtomicInteger regularOpenCount;
+
+    public CounterRegistry() {
+        this.counters = new ConcurrentSkipListMap<>();
+        this.vipIds = new BitSet();
+        this.regularIds = new BitSet();
+        this.vipOpen = new BitSet();
+        this.regularOpen = new BitSet();
+        this.vipOpenCount = new AtomicInteger();
+        this.regularOpenCount = new AtomicInteger();
+    }
+
+    /**
+     * Creates and registers an open counter with the lowest free ID of its type, unless the maximum
+     * number of counters of that type is already open.
+     *
+     * @param isVIP   True for a VIP counter, false for a regular counter.
+     * @param max     The largest number of open counters of this type.
+     * @param factory Creates the counter for the ID it is given.
+     * @return The new counter, or null if the maximum is open.
+     */
+    public synchronized CheckInCounter open(boolean isVIP, int max, IntFunction<CheckInCounter> factory) {
+        if (getOpenCount(isVIP) >= max) {
+            return null;
+        }
+        int slot = ids(isVIP).nextClearBit(0);
+        CheckInCounter counter = factory.apply(idFor(isVIP, slot));
+        ids(isVIP).set(slot);
+        openSlots(isVIP).set(slot);
+        openCount(isVIP).incrementAndGet();
+        counters.put(counter.getCounterId(), counter);
+        return counter;
+    }
+
+    /**
+     * Marks a counter as closed. Its ID stays taken until it is removed.
+     *
+     * @param counter The counter to close.
+     * @return True if the counter was open, false otherwise.
+     */
+    public synchronized boolean close(CheckInCounter counter) {
+        boolean isVIP = counter.isVIP();
+        int slot = slotFor(isVIP, counter.getCounterId());
+        if (counters.get(counter.getCounterId()) != counter || !openSlots(isVIP).get(slot)) {
+            return false;
+        }
+        openSlots(isVIP).clear(slot);
+        openCount(isVIP).decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes a counter, closing it first if it is open, and frees its ID.
+     *
+     * @param counter The counter to remove.
+     * @return True if the counter was registered, false otherwise.
+     */
+    public synchronized boolean remove(CheckInCounter counter) {
+        close(counter);
+        if (!counters.remove(counter.getCounterId(), counter)) {
+            return false;
+        }
+        ids(counter.isVIP()).clear(slotFor(counter.isVIP(), counter.getCounterId()));
+        return true;
+    }
+
+    /**
+     * Removes every counter matching the filter.
+     *
+     * @param filter Selects the counters to remove.
+     * @return True if any counter was removed.
+     */
+    public synchronized boolean removeIf(Predicate<CheckInCounter> filter) {
+        boolean removed = false;
+        for (CheckInCounter counter : counters.values()) {
+            if (filter.test(counter)) {
+                removed |= remove(counter);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all counters and frees all IDs.
+     *
+     * @return The counters that were registered, in ID order.
+     */
+    public synchronized List<CheckInCounter> removeAll() {
+        List<CheckInCounter> removed = snapshot();
+        counters.clear();
+        vipIds.clear();
+        regularIds.clear();
+        vipOpen.clear();
+        regularOpen.clear();
+        vipOpenCount.set(0);
+        regularOpenCount.set(0);
+        return removed;
+    }
+
+    /**
+     * @param isVIP True for VIP counters, false for regular counters.
+     * @return The open counter of the type with the highest ID, or null if none is open.
+     */
+    public synchronized CheckInCounter lastOpen(boolean isVIP) {
+        int slot = openSlots(isVIP).length() - 1;
+        return slot < 0 ? null : counters.get(idFor(isVIP, slot));
+    }
+
+    /**
+     * Counts the open counters of a type in constant time.
+     *
+     * @param isVIP True for VIP counters, false for regular counters.
+     * @return The number of open counters of the type.
+     */
+    public int getOpenCount(boolean isVIP) {
+        return openCount(isVIP).get();
+    }
+
+    public boolean contains(int counterId) {
+        return counters.containsKey(counterId);
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * @return A copy of the registered counters in ID order, not affected by later changes.
+     */
+    public List<CheckInCounter> snapshot() {
+        return new ArrayList<>(counters.values());
+    }
+
+    /**
+     * @return An iterator over a snapshot of the counters in ID order, safe to use while counters change.
+     */
+    @Override
+    public Iterator<CheckInCounter> iterator() {
+        return snapshot().iterator();
+    }
+
+    /**
+     * Maps a slot of the ID bitset of a type to the counter ID, every fifth ID going to VIP counters.
+     */
+    static int idFor(boolean isVIP, int slot) {
+        return isVIP ? slot * 5 : slot + slot / 4 + 1;
+    }
+
+    static int slotFor(boolean isVIP, int counterId) {
+        return isVIP ? counterId / 5 : counterId - counterId / 5 - 1;
+    }
+
+    private BitSet ids(boolean isVIP) {
+        return isVIP ? vipIds : regularIds;
+    }
+
+    private BitSet openSlots(boolean isVIP) {
+        return isVIP ? vipOpen : regularOpen;
+    }
+
+    private AtomicInteger openCount(boolean isVIP) {
+        return isVIP ? vipOpenCount : regularOpenCount;
+    }
+}
@@ -0,0 +1,288 @@
+package Stage2;
+
+import Stage1.modules.Flight;
+import Stage1.modules.FlightList;
+import Stage1.modules.Passenger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Earliest-deadline-first queue discipline.
+ * <p>
+ * The passenger whose flight takes off first is served first; passengers of the same flight keep their
+ * arrival order. Passengers are kept in a binary heap with an index from passenger to heap slot, so adding,
+ * taking the next passenger and removing any waiting passenger all cost O(log n). The take-off time is looked
+ * up once, when the passenger is added.
+ * <p>
+ * A passenger whose flight has already left can no longer make it, and serving them first would only cost
+ * the passengers who still can. Such passengers are moved behind every reachable deadline, when they are
+ * added or when their take-off time passes while they wait, and the counter turns them away in their turn.
+ */
+public class EarliestDeadlineDiscipline implements QueueDiscipline {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long NO_DEADLINE = Long.MAX_VALUE; // Passengers of unknown or departed flights go last
+
+    private final FlightList flightList;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final Map<Passenger, Integer> slots; // passenger -> heap slot
+    private Passenger[] passengers;
+    private long[] deadlines; // take-off time in epoch milliseconds
+    private long[] arrivals; // tie-breaker, first come first served within a flight
+    private int size;
+    private long nextArrival;
+
+    /**
+     * Constructs an EarliestDeadlineDiscipline.
+     *
+     * @param flightList The flights whose take-off times are the deadlines.
+     */
+    public EarliestDeadlineDiscipline(FlightList flightList) {
+        this.flightList = flightList;
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.slots = new IdentityHashMap<>();
+        this.passengers = new Passenger[INITIAL_CAPACITY];
+        this.deadlines = new long[INITIAL_CAPACITY];
+        this.arrivals = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a passenger at the place given by the take-off time of their flight.
+     * Unlike FIFO, a passenger who is already waiting is refused and keeps their place, since the heap
+     * indexes each passenger by a single slot.
+     */
+    @Override
+    public boolean offer(Passenger passenger) {
+        long deadline = deadlineOf(passenger);
+        lock.lock();
+        try {
+            if (slots.containsKey(passenger)) {
+                return false;
+            }
+            if (size == passengers.length) {
+                grow();
+            }
+            set(size, passenger, deadline, nextArrival++);
+            siftUp(size++);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Passenger poll() {
+        lock.lock();
+        try {
+            deferMissed();
+            return size == 0 ? null : removeAt(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Passenger poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            deferMissed();
+            return removeAt(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Passenger> sink, int max) {
+        lock.lock();
+        try {
+            int drained = 0;
+            deferMissed();
+            while (drained < max && size > 0) {
+                sink.add(removeAt(0));
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a waiting passenger, for example one who left the queue.
+     *
+     * @param passenger The passenger to be removed.
+     * @return True if the passenger was waiting, false otherwise.
+     */
+    public boolean remove(Passenger passenger) {
+        lock.lock();
+        try {
+            Integer slot = slots.get(passenger);
+            if (slot == null) {
+                return false;
+            }
+            removeAt(slot);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Passenger> toList() {
+        Integer[] order;
+        Passenger[] copy;
+        long[] deadlineCopy;
+        long[] arrivalCopy;
+        lock.lock();
+        try {
+            copy = Arrays.copyOf(passengers, size);
+            deadlineCopy = Arrays.copyOf(deadlines, size);
+            arrivalCopy = Arrays.copyOf(arrivals, size);
+        } finally {
+            lock.unlock();
+        }
+        order = new Integer[copy.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(deadlineCopy[a], arrivalCopy[a], deadlineCopy[b], arrivalCopy[b]));
+        List<Passenger> list = new ArrayList<>(copy.length);
+        for (int i : order) {
+            list.add(copy[i]);
+        }
+        return list;
+    }
+
+    @Override
+    public String getName() {
+        return "EDF";
+    }
+
+    /**
+     * @return The take-off time of the passenger's flight in epoch milliseconds, NO_DEADLINE if the flight
+     * is unknown or has already left.
+     */
+    private long deadlineOf(Passenger passenger) {
+        Flight flight = flightList.findByCode(passenger.getFlightCode(), null);
+        if (flight == null) {
+            return NO_DEADLINE;
+        }
+        long deadline = flight.getTakeOffInstant().toEpochMilli();
+        if (flight.getIsTakenOff() || deadline <= System.currentTimeMillis()) {
+            logMissed(passenger);
+            return NO_DEADLINE;
+        }
+        return deadline;
+    }
+
+    /**
+     * Moves the passengers at the top of the heap whose take-off time has passed behind every reachable
+     * deadline. Each passenger is moved at most once. Call while holding the lock.
+     */
+    private void deferMissed() {
+        long now = System.currentTimeMillis();
+        while (size > 0 && deadlines[0] != NO_DEADLINE && deadlines[0] <= now) {
+            logMissed(passengers[0]);
+            deadlines[0] = NO_DEADLINE;
+            siftDown(0);
+        }
+    }
+
+    private static void logMissed(Passenger passenger) {
+        Log.generateLog(String.format("Passenger %s has missed flight %s and is moved to the back of the queue.",
+                passenger.getRefCode(), passenger.getFlightCode()));
+    }
+
+    /**
+     * Removes the passenger at a heap slot, filling the hole with the last passenger.
+     */
+    private Passenger removeAt(int slot) {
+        Passenger removed = passengers[slot];
+        slots.remove(removed);
+        int last = --size;
+        if (slot != last) {
+            Passenger moved = passengers[last];
+            set(slot, moved, deadlines[last], arrivals[last]);
+            passengers[last] = null;
+            siftDown(slot);
+            if (passengers[slot] == moved) {
+                siftUp(slot); // The last passenger may belong above the hole when it was not taken from the top
+            }
+        } else {
+            passengers[last] = null;
+        }
+        return removed;
+    }
+
+    private void siftUp(int slot) {
+        Passenger passenger = passengers[slot];
+        long deadline = deadlines[slot];
+        long arrival = arrivals[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (compare(deadline, arrival, deadlines[parent], arrivals[parent]) >= 0) {
+                break;
+            }
+            set(slot, passengers[parent], deadlines[parent], arrivals[parent]);
+            slot = parent;
+        }
+        set(slot, passenger, deadline, arrival);
+    }
+
+    private void siftDown(int slot) {
+        Passenger passenger = passengers[slot];
+        long deadline = deadlines[slot];
+        long arrival = arrivals[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && compare(deadlines[right], arrivals[right], deadlines[child], arrivals[child]) < 0) {
+                child = right;
+            }
+            if (compare(deadline, arrival, deadlines[child], arrivals[child]) <= 0) {
+                break;
+            }
+            set(slot, passengers[child], deadlines[child], arrivals[child]);
+            slot = child;
+        }
+        set(slot, passenger, deadline, arrival);
+    }
+
+    private void set(int slot, Passenger passenger, long deadline, long arrival) {
+        passengers[slot] = passenger;
+        deadlines[slot] = deadline;
+        arrivals[slot] = arrival;
+        slots.put(passenger, slot);
+    }
+
+    private static int compare(long deadlineA, long arrivalA, long deadlineB, long arrivalB) {
+        int byDeadline = Long.compare(deadlineA, deadlineB);
+        return byDeadline != 0 ? byDeadline : Long.compare(arrivalA, arrivalB);
+    }
+
+    private void grow() {
+        int capacity = passengers.length * 2;
+        passengers = Arrays.copyOf(passengers, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        arrivals = Arrays.copyOf(arrivals, capacity);
+    }
+}
@@ -0,0 +1,50 @@
+package Stage2;
+
+import Stage1.modules.Passenger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First-come, first-served queue discipline.
+ * <p>
+ * Passengers are kept in a lock-free LinkedTransferQueue, so any number of arrival threads and counters can
+ * enqueue and dequeue without blocking each other, and a counter waiting in poll is handed the next
+ * passenger as soon as it is added.
+ */
+public class FifoDiscipline implements QueueDiscipline {
+    private final LinkedTransferQueue<Passenger> queue = new LinkedTransferQueue<>();
+
+    @Override
+    public boolean offer(Passenger passenger) {
+        return queue.offer(passenger);
+    }
+
+    @Override
+    public Passenger poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public Passenger poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Passenger> sink, int max) {
+        return queue.drainTo(sink, max);
+    }
+
+    @Override
+    public List<Passenger> toList() {
+        return new ArrayList<>(queue); // Weakly consistent copy, passengers may join or leave meanwhile
+    }
+
+    @Override
+    public String getName() {
+        return "FIFO";
+    }
+}
@@ -7,7 +7,6 @@ import Stage2.Observer;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 
 /**
@@ -20,7 +19,7 @@ public class CheckInCounterGUI extends JPanel implements Observer {
     // Member variables
     private final JPanel allVipPanel;
     private final JPanel allRegularPanel;
-    private final List<CheckInCounter> counters;
+    private final Iterable<CheckInCounter> counters; // iterates a snapshot, counters may open or close meanwhile
     private final double percentage;
 
     /**
@@ -28,7 +27,7 @@ public class CheckInCounterGUI extends JPanel implements Observer {
      *
      * @param counters The list of check-in counters to display.
      */
-    public CheckInCounterGUI(List<CheckInCounter> counters) {
+    public CheckInCounterGUI(Iterable<CheckInCounter> counters) {
         this.counters = counters;
         percentage = (double) CheckInCounterManager.getMAX_REGULAR_COUNTER() / (double) ((CheckInCounterManager.getMAX_REGULAR_COUNTER()) + CheckInCounterManager.getMAX_VIP_COUNTER());
         setLayout(new BorderLayout());
@@ -89,7 +89,7 @@ public class FlightStatusGUI extends JPanel implements Observer {
         JLabel checkIn = new JLabel(flight.getPassengerInFlight().checkInSize() + " checked in of " + flight.getPassengerInFlight().size(), SwingConstants.CENTER);
 
         // Calculate and display hold percentage
-        double percentage = flight.getBaggageInFlight().getTotalVolume() / flight.getMaxBaggageVolume() * 100;
+        double percentage = flight.getHoldVolume() / flight.getMaxBaggageVolume() * 100;
         JLabel percentageLabel = new JLabel("Hold is " + String.format("%.2f", percentage) + "% full", SwingConstants.CENTER);
 
         // Generate and display departure text
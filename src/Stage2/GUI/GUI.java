@@ -6,7 +6,6 @@ import Stage2.PassengerQueue;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 
 /**
@@ -27,7 +26,7 @@ public class GUI extends JFrame {
      * @param checkInCounter The list of check-in counters.
      * @param flightList     The list of flights.
      */
-    public GUI(PassengerQueue vipQueue, PassengerQueue regularQueue, List<CheckInCounter> checkInCounter, FlightList flightList) {
+    public GUI(PassengerQueue vipQueue, PassengerQueue regularQueue, Iterable<CheckInCounter> checkInCounter, FlightList flightList) {
         setTitle("Merged GUI");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1300, 800);
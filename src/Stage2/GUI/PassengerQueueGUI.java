@@ -137,7 +137,7 @@ public class PassengerQueueGUI extends JPanel implements Observer {
             passengerPanel.add(createLabelWithBorder(passenger.getFlightCode(), 25, 0));
             passengerPanel.add(createLabelWithBorder(passenger.getName(), 0, 0));
 
-            if (!passenger.getHisBaggageList().getBaggageList().isEmpty()) {
+            if (passenger.getHisBaggageList().size() != 0) {
                 Baggage firstBaggage = passenger.getHisBaggageList().get(0);
                 passengerPanel.add(createLabelWithBorder(firstBaggage.getWeightPrint(), 40, 0));
                 passengerPanel.add(createLabelWithBorder(firstBaggage.getVolumePrint(), 18, 0));
@@ -3,69 +3,163 @@ package Stage2;
 import Stage1.modules.Passenger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * The PassengerQueue class is the queue of passengers waiting for one type of check-in counter.
+ * <p>
+ * The order in which passengers are served is decided by a pluggable QueueDiscipline: first-come,
+ * first-served by default, or earliest flight departure first. A counter waiting in take is handed the next
+ * passenger as soon as it is enqueued. The size is kept in an atomic counter, because the GUI and the
+ * counter manager ask for it far more often than a lock-free queue could count itself.
+ */
 public class PassengerQueue implements Subject {
-    private final Queue<Passenger> queue;
+    private final QueueDiscipline queue;
+    private final AtomicInteger size;
+    private final AtomicLong arrivals; // passengers ever enqueued, for the arrival rate
+    private final AtomicLong departures; // passengers ever removed, for the service rate
     private final List<Observer> observers;
+    private final Queue<Runnable> idleCounters; // wake-ups of counters running as tasks, see onNextPassenger
 
+    /**
+     * Constructs a first-come, first-served PassengerQueue.
+     */
     public PassengerQueue() {
-        queue = new LinkedList<>();
-        observers = new ArrayList<>();
+        this(new FifoDiscipline());
+    }
+
+    /**
+     * Constructs a PassengerQueue that serves passengers in the order of the given discipline.
+     *
+     * @param discipline Decides which waiting passenger is served next.
+     */
+    public PassengerQueue(QueueDiscipline discipline) {
+        queue = discipline;
+        size = new AtomicInteger();
+        arrivals = new AtomicLong();
+        departures = new AtomicLong();
+        observers = new CopyOnWriteArrayList<>();
+        idleCounters = new ConcurrentLinkedQueue<>();
     }
 
     @Override
     public void registerObserver(Observer observer) {
-        synchronized (observers) {
-            observers.add(observer);
-        }
+        observers.add(observer);
     }
 
     @Override
     public void removeObserver(Observer observer) {
-        synchronized (observers) {
-            observers.remove(observer);
-        }
+        observers.remove(observer);
     }
 
     @Override
     public void notifyObservers() {
-        synchronized (observers) {
-            for (Observer observer : observers) {
-                observer.update();
-            }
+        for (Observer observer : observers) {
+            observer.update();
         }
     }
 
     /**
-     * Adds a passenger to the queue.
+     * Adds a passenger to the queue, waking a counter waiting in take.
      *
      * @param passenger The passenger to be added.
      */
     public void enqueue(Passenger passenger) {
-        synchronized (this.queue) {
-            queue.add(passenger);
-            notifyObservers();
+        // Count first, so a counter taking the passenger right away never drives the size below zero
+        size.incrementAndGet();
+        if (!queue.offer(passenger)) {
+            size.decrementAndGet();
+            return;
         }
+        arrivals.incrementAndGet();
+        Runnable wakeUp = idleCounters.poll();
+        if (wakeUp != null) {
+            wakeUp.run();
+        }
+        notifyObservers();
     }
 
     /**
-     * Removes and returns the passenger at the front of the queue.
+     * Registers a wake-up that runs once, on the enqueuing thread, when the next passenger is enqueued.
+     * Counters running as tasks use it instead of take, so waiting does not hold a thread. The wake-up
+     * should only hand the counter to its executor. If a passenger is already waiting it runs right away.
+     *
+     * @param wakeUp Called once when a passenger may be available.
+     */
+    public void onNextPassenger(Runnable wakeUp) {
+        idleCounters.offer(wakeUp);
+        // A passenger enqueued just before the registration found no wake-up to run
+        if (!isEmpty() && idleCounters.remove(wakeUp)) {
+            wakeUp.run();
+        }
+    }
+
+    /**
+     * Withdraws a wake-up registered with onNextPassenger.
+     *
+     * @param wakeUp The wake-up to withdraw.
+     * @return True if it was still waiting, false if it has run or was never registered.
+     */
+    public boolean cancelNextPassenger(Runnable wakeUp) {
+        return idleCounters.remove(wakeUp);
+    }
+
+    /**
+     * Removes and returns the passenger at the front of the queue without waiting.
      *
      * @return The passenger at the front of the queue, or null if the queue is empty.
      */
     public Passenger dequeue() {
-        synchronized (this.queue) {
-            if (queue.isEmpty()) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
+        return removed(queue.poll());
+    }
+
+    /**
+     * Removes and returns the passenger at the front of the queue, waiting until one is enqueued
+     * if the queue is empty.
+     *
+     * @param timeout How long to wait before giving up.
+     * @param unit    The unit of the timeout.
+     * @return The passenger at the front of the queue, or null if none was enqueued in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public Passenger take(long timeout, TimeUnit unit) throws InterruptedException {
+        return removed(queue.poll(timeout, unit));
+    }
+
+    /**
+     * Removes up to max passengers from the front of the queue in one operation, without waiting.
+     * Observers are notified once for the whole batch.
+     *
+     * @param max The largest number of passengers to remove.
+     * @return The passengers removed in service order, empty if the queue is empty.
+     */
+    public List<Passenger> drain(int max) {
+        List<Passenger> batch = new ArrayList<>(Math.min(max, Math.max(size(), 1)));
+        int drained = queue.drainTo(batch, max);
+        if (drained > 0) {
+            size.addAndGet(-drained);
+            departures.addAndGet(drained);
+            notifyObservers();
+        }
+        return batch;
+    }
+
+    /**
+     * Updates the size and the observers after a passenger left the queue.
+     *
+     * @param passenger The passenger removed, or null if none was.
+     * @return The passenger removed, or null.
+     */
+    private Passenger removed(Passenger passenger) {
+        if (passenger != null) {
+            size.decrementAndGet();
+            departures.incrementAndGet();
+            notifyObservers();
         }
-        Passenger passenger = queue.remove();
-        notifyObservers();
         return passenger;
     }
 
@@ -75,9 +169,7 @@ public class PassengerQueue implements Subject {
      * @return True if the queue is empty, false otherwise.
      */
     public boolean isEmpty() {
-        synchronized (this.queue) {
-            return queue.isEmpty();
-        }
+        return size.get() <= 0;
     }
 
     /**
@@ -86,18 +178,35 @@ public class PassengerQueue implements Subject {
      * @return The number of passengers in the queue.
      */
     public int size() {
-        synchronized (this.queue) {
-            return queue.size();
-        }
+        return Math.max(size.get(), 0);
     }
 
     public Iterable<Passenger> getQueue() {
-        synchronized (this.queue) {
-            return new LinkedList<>(queue); // Return a copy to avoid concurrent modification
-        }
+        return queue.toList(); // Copy in service order, passengers may join or leave meanwhile
+    }
+
+    /**
+     * @return The number of passengers enqueued since the queue was created.
+     */
+    public long getArrivalCount() {
+        return arrivals.get();
+    }
+
+    /**
+     * @return The number of passengers removed since the queue was created.
+     */
+    public long getDepartureCount() {
+        return departures.get();
+    }
+
+    /**
+     * @return The name of the queue discipline, for logs and reports.
+     */
+    public String getDisciplineName() {
+        return queue.getName();
     }
 
     public Iterator<Passenger> iterator() {
         return this.getQueue().iterator();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package Stage2;
+
+/**
+ * Sizes the counters of a queue from the measured arrival and service rates, against a target wait.
+ * <p>
+ * Both rates are exponentially weighted moving averages of the queue's arrival and departure counts,
+ * weighted by the time between two checks, so they follow the load without jumping at every check. The
+ * service rate of one counter is only measured while passengers are waiting, since idle counters serve
+ * fewer passengers than they could. The expected wait with c counters is the Erlang C wait of an M/M/c
+ * queue plus the time c counters need to clear the passengers already waiting (Little's law), and the
+ * policy asks for the fewest counters that keep it under the target.
+ * <p>
+ * To avoid opening and closing counters in turn, a counter is only closed when the remaining ones would
+ * keep the wait under half the target, one at a time, and no change is made within the cool-down of the
+ * previous one.
+ */
+public class PredictiveScalingPolicy implements ScalingPolicy {
+    // Service rate of one counter before any was measured: one passenger every 1.5 seconds
+    private static final double INITIAL_SERVICE_RATE = 1.0 / 1.5;
+    // Slowest service rate the average may fall to, so a stalled interval cannot make every wait infinite
+    private static final double MIN_SERVICE_RATE = INITIAL_SERVICE_RATE / 10;
+    private static final double SMOOTHING_TIME = 5000; // Time constant of the moving averages, in milliseconds
+    private static final long MIN_SAMPLE_INTERVAL = 100; // Checks closer together than this reuse the last rates
+    private static final double CLOSE_MARGIN = 0.5; // Share of the target the wait must stay under to close one
+    private final double targetWait;
+    private final long coolDown;
+    private final int maxCounters;
+    private double arrivalRate; // passengers per second
+    private double serviceRate; // passengers per second per counter
+    private long lastArrivals;
+    private long lastDepartures;
+    private int lastQueueSize;
+    private long lastSample = -1;
+    private long lastChange = -1;
+    private int lastRequired;
+
+    /**
+     * Constructs a policy that sizes the counters to the given target wait.
+     *
+     * @param targetWait  The longest expected wait for a passenger joining the queue, in seconds.
+     * @param coolDown    The shortest time between two changes, in milliseconds.
+     * @param maxCounters The most counters the queue can have open.
+     */
+    public PredictiveScalingPolicy(double targetWait, long coolDown, int maxCounters) {
+        if (targetWait <= 0) {
+            throw new IllegalArgumentException("Target wait must be positive: " + targetWait);
+        }
+        if (maxCounters < 1) {
+            throw new IllegalArgumentException("At least one counter must be allowed: " + maxCounters);
+        }
+        this.targetWait = targetWait;
+        this.coolDown = coolDown;
+        this.maxCounters = maxCounters;
+        this.serviceRate = INITIAL_SERVICE_RATE;
+    }
+
+    @Override
+    public int countersToAdjust(PassengerQueue queue, int openCount, long now) {
+        int queueSize = queue.size();
+        sample(queue, queueSize, openCount, now);
+        lastRequired = requiredCounters(queueSize);
+        if (lastChange >= 0 && now - lastChange < coolDown) {
+            return 0;
+        }
+        if (lastRequired > openCount) {
+            lastChange = now;
+            return lastRequired - openCount;
+        }
+        if (lastRequired < openCount && openCount > 1
+                && expectedWait(openCount - 1, queueSize) <= targetWait * CLOSE_MARGIN) {
+            lastChange = now;
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Updates the moving averages with the passengers that joined and left the queue since the last check.
+     */
+    private void sample(PassengerQueue queue, int queueSize, int openCount, long now) {
+        long arrivals = queue.getArrivalCount();
+        long departures = queue.getDepartureCount();
+        if (lastSample < 0) {
+            lastSample = now;
+            lastArrivals = arrivals;
+            lastDepartures = departures;
+            lastQueueSize = queueSize;
+            return;
+        }
+        long elapsed = now - lastSample;
+        if (elapsed < MIN_SAMPLE_INTERVAL) {
+            return;
+        }
+        double seconds = elapsed / 1000.0;
+        double weight = 1 - Math.exp(-elapsed / SMOOTHING_TIME);
+        arrivalRate += weight * ((arrivals - lastArrivals) / seconds - arrivalRate);
+        // Only counters that had passengers waiting all along show how fast they can serve
+        if (openCount > 0 && queueSize > 0 && lastQueueSize > 0) {
+            double measured = (departures - lastDepartures) / seconds / openCount;
+            serviceRate = Math.max(MIN_SERVICE_RATE, serviceRate + weight * (measured - serviceRate));
+        }
+        lastSample = now;
+        lastArrivals = arrivals;
+        lastDepartures = departures;
+        lastQueueSize = queueSize;
+    }
+
+    /**
+     * @param waiting The passengers waiting now.
+     * @return The fewest counters that keep the expected wait under the target, at most the queue's limit.
+     */
+    private int requiredCounters(int waiting) {
+        for (int counters = 1; counters < maxCounters; counters++) {
+            if (expectedWait(counters, waiting) <= targetWait) {
+                return counters;
+            }
+        }
+        return maxCounters;
+    }
+
+    /**
+     * @return The expected wait of a passenger joining behind the waiting ones, in seconds.
+     */
+    private double expectedWait(int counters, int waiting) {
+        return erlangCWait(counters, arrivalRate, serviceRate) + waiting / (counters * serviceRate);
+    }
+
+    /**
+     * Calculates the mean wait in an M/M/c queue with the Erlang C formula.
+     *
+     * @param servers     The number of counters.
+     * @param arrivalRate The arrival rate, in passengers per second.
+     * @param serviceRate The service rate of one counter, in passengers per second.
+     * @return The mean wait before service in seconds, or infinity if the counters cannot keep up.
+     */
+    static double erlangCWait(int servers, double arrivalRate, double serviceRate) {
+        if (arrivalRate <= 0) {
+            return 0;
+        }
+        double load = arrivalRate / serviceRate; // offered load in Erlangs
+        if (servers <= load) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // Erlang B by its recurrence, which does not overflow like the factorial form
+        double erlangB = 1.0;
+        for (int k = 1; k <= servers; k++) {
+            erlangB = load * erlangB / (k + load * erlangB);
+        }
+        double utilisation = load / servers;
+        double erlangC = erlangB / (1 - utilisation * (1 - erlangB));
+        return erlangC / (servers * serviceRate - arrivalRate);
+    }
+
+    @Override
+    public String describe() {
+        return String.format("%.2f arrivals/s, %.2f served/s per counter, %d waiting, %d counters needed",
+                arrivalRate, serviceRate, lastQueueSize, lastRequired);
+    }
+
+    @Override
+    public String getName() {
+        return "Predictive";
+    }
+}
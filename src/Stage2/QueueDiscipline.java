@@ -0,0 +1,57 @@
+package Stage2;
+
+import Stage1.modules.Passenger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The QueueDiscipline interface decides the order in which a PassengerQueue hands out its passengers.
+ * Implementations must be safe for many enqueuing and dequeuing threads at once.
+ */
+public interface QueueDiscipline {
+    /**
+     * Adds a passenger.
+     *
+     * @param passenger The passenger to be added.
+     * @return True if the passenger was added, false if the discipline refused them.
+     */
+    boolean offer(Passenger passenger);
+
+    /**
+     * Removes the next passenger without waiting.
+     *
+     * @return The next passenger, or null if there is none.
+     */
+    Passenger poll();
+
+    /**
+     * Removes the next passenger, waiting until one is added if there is none.
+     *
+     * @param timeout How long to wait before giving up.
+     * @param unit    The unit of the timeout.
+     * @return The next passenger, or null if none was added in time.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    Passenger poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Removes up to max passengers in one operation, in the order they would be served.
+     *
+     * @param sink The collection the passengers are added to.
+     * @param max  The largest number of passengers to remove.
+     * @return The number of passengers removed.
+     */
+    int drainTo(Collection<? super Passenger> sink, int max);
+
+    /**
+     * @return A copy of the waiting passengers in the order they would be served.
+     */
+    List<Passenger> toList();
+
+    /**
+     * @return The name of the discipline, used in logs and reports.
+     */
+    String getName();
+}
@@ -0,0 +1,34 @@
+package Stage2;
+
+import Stage1.modules.FlightList;
+
+/**
+ * The queue disciplines a simulation can run with, so their missed-flight counts can be compared.
+ */
+public enum QueuePolicy {
+    /**
+     * First come, first served. A passenger enqueued twice is queued twice.
+     */
+    FIFO,
+    /**
+     * Earliest flight departure first, see EarliestDeadlineDiscipline.
+     * A passenger enqueued while already waiting is refused, where FIFO would queue them a second time.
+     */
+    EARLIEST_DEADLINE;
+
+    /**
+     * Creates a new discipline of this policy for one queue.
+     *
+     * @param flightList The flights of the passengers, for the take-off times.
+     * @return A new, empty queue discipline.
+     */
+    public QueueDiscipline create(FlightList flightList) {
+        switch (this) {
+            case EARLIEST_DEADLINE:
+                return new EarliestDeadlineDiscipline(flightList);
+            case FIFO:
+            default:
+                return new FifoDiscipline();
+        }
+    }
+}
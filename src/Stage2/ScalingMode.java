@@ -0,0 +1,37 @@
+package Stage2;
+
+/**
+ * The counter scaling policies a simulation can run with, so their counter changes and missed flights
+ * can be compared.
+ */
+public enum ScalingMode {
+    /**
+     * Open and close counters at fixed queue sizes, see ThresholdScalingPolicy.
+     */
+    THRESHOLD,
+    /**
+     * Size the counters from the arrival and service rates, see PredictiveScalingPolicy.
+     */
+    PREDICTIVE;
+
+    // Target wait of the predictive policy in seconds, set with -Dcounter.target.wait=N
+    private static final double TARGET_WAIT = Double.parseDouble(System.getProperty("counter.target.wait", "20"));
+    // Shortest time between two changes of the predictive policy in milliseconds, set with -Dcounter.cool.down=N
+    private static final long COOL_DOWN = Long.getLong("counter.cool.down", 3000);
+
+    /**
+     * Creates a new policy of this mode for one queue.
+     *
+     * @param maxCounters The most counters the queue can have open.
+     * @return A new scaling policy with no history.
+     */
+    public ScalingPolicy create(int maxCounters) {
+        switch (this) {
+            case PREDICTIVE:
+                return new PredictiveScalingPolicy(TARGET_WAIT, COOL_DOWN, maxCounters);
+            case THRESHOLD:
+            default:
+                return new ThresholdScalingPolicy();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package Stage2;
+
+/**
+ * Decides how many counters of one type the CheckInCounterManager should open or close.
+ * <p>
+ * The manager keeps one policy per queue and asks it on every check, so a policy may keep state between
+ * calls. It is only called by the manager's monitor, one call at a time.
+ */
+public interface ScalingPolicy {
+    /**
+     * Works out the change in open counters the queue needs right now.
+     *
+     * @param queue     The queue served by the counters.
+     * @param openCount The number of counters of this type that are open.
+     * @param now       The current time, in milliseconds.
+     * @return The number of counters to open if positive, to close if negative, or 0 to keep them.
+     */
+    int countersToAdjust(PassengerQueue queue, int openCount, long now);
+
+    /**
+     * @return A short description of what the last decision was based on, for the log.
+     */
+    String describe();
+
+    /**
+     * @return The name of the policy, used in logs and reports.
+     */
+    String getName();
+}
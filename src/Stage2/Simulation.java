@@ -2,10 +2,14 @@ package Stage2;
 
 import Stage1.modules.*;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.Lock;
 
 /**
  * The Simulation class orchestrates an airport check-in simulation, focusing on real-time passenger processing and flight management.
@@ -29,13 +33,26 @@ import java.util.Random;
 public class Simulation {
     private static final String PASSENGER_DATA_FILE = "file/PassengerList.txt";
     private static final String FLIGHT_DATA_FILE = "file/FlightList.txt";
+    private static final String SNAPSHOT_FILE = "file/manifest.snapshot";
+    private static final long NOTIFY_INTERVAL = 250; // Shortest time between two flight updates, in milliseconds
+    // Threads shared by all counters, one per core unless set with -Dcounter.pool.threads=N; 0 gives every counter its own thread
+    private static final int COUNTER_POOL_THREADS = Integer.getInteger("counter.pool.threads",
+            Runtime.getRuntime().availableProcessors());
+    // Order of the passenger queues, set with -Dqueue.policy=FIFO or EARLIEST_DEADLINE
+    private static final QueuePolicy QUEUE_POLICY = QueuePolicy.valueOf(System.getProperty("queue.policy", "FIFO"));
+    // How counters are opened and closed, set with -Dcounter.scaling=THRESHOLD or PREDICTIVE
+    private static final ScalingMode SCALING_MODE = ScalingMode.valueOf(System.getProperty("counter.scaling", "THRESHOLD"));
     private static PassengerList paxList;
     private static FlightList fltList;
     private static CheckInCounterManager counterManager;
+    private static BookingIngestion bookingIngestion;
+    private static CoalescingNotifier flightNotifier;
+    private static ScheduledExecutorService counterScheduler;
+    private static int missedPassengers; // passengers not checked in when their flight's take-off time passed
 
 
     /**
-     * Constructs a Simulation instance by initializing passenger and flight lists from text files,
+     * Constructs a Simulation instance by initializing passenger and flight lists from the snapshot or the text files,
      * and associates passengers with their flights. Also initializes the check-in counter manager.
      *
      * @throws AllExceptions.NoMatchingFlightException If a passenger's flight cannot be found.
@@ -43,10 +60,40 @@ public class Simulation {
     public Simulation() throws AllExceptions.NoMatchingFlightException {
         paxList = new PassengerList();
         fltList = new FlightList();
-        paxList.loadPassengersFromTXT(PASSENGER_DATA_FILE);
-        fltList.loadFlightsFromTXT(FLIGHT_DATA_FILE);
-        fltList.addPassengersToFlights(paxList);
-        counterManager = new CheckInCounterManager(fltList);
+        // Created before loading, so bookings appended during the load are still picked up
+        bookingIngestion = new BookingIngestion(PASSENGER_DATA_FILE, paxList, fltList, this::passengerArrival);
+        LoadReport report = ManifestSnapshot.loadOrParse(SNAPSHOT_FILE, PASSENGER_DATA_FILE, FLIGHT_DATA_FILE, paxList, fltList);
+        if (report != null) {
+            Log.generateLog(report.toString());
+        }
+        // Several counters load the same flight at once, so use the striped hold accounting
+        for (Flight flight : fltList.view()) {
+            flight.enableConcurrentHold();
+        }
+        counterScheduler = createCounterScheduler();
+        counterManager = new CheckInCounterManager(fltList, counterScheduler, QUEUE_POLICY, SCALING_MODE);
+        // Flights only count their changes, the notifier turns them into at most one update per interval
+        flightNotifier = new CoalescingNotifier(NOTIFY_INTERVAL);
+        for (Flight flight : fltList.view()) {
+            flightNotifier.watch(flight::getVersion, flight::notifyObservers);
+        }
+        flightNotifier.watch(fltList::getVersion, fltList::notifyObservers);
+    }
+
+    /**
+     * Creates the pool the counters run on as tasks, so a simulation can hold far more counters than threads.
+     *
+     * @return A scheduler with COUNTER_POOL_THREADS daemon threads, or null to run each counter on its own thread.
+     */
+    private static ScheduledExecutorService createCounterScheduler() {
+        if (COUNTER_POOL_THREADS <= 0) {
+            return null;
+        }
+        return Executors.newScheduledThreadPool(COUNTER_POOL_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "check-in-counter-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     public static void main(String[] args) throws AllExceptions.NoMatchingFlightException {
@@ -59,10 +106,10 @@ public class Simulation {
      * and logs actions. Works on a copy of the passenger list to avoid concurrency issues.
      */
     private synchronized void passengerProcessing() {
+        // Create a copy of the passenger list to work with, before late bookings can be added
+        List<Passenger> passengerListCopy = new ArrayList<>(paxList.view());
         Thread passengerThread = new Thread(() -> {
             Random random = new Random();
-            // Create a copy of the passenger list to work with
-            List<Passenger> passengerListCopy = new ArrayList<>(paxList.getPassengers());
             while (!passengerListCopy.isEmpty()) {
                 try {
                     int randomIndex = random.nextInt(passengerListCopy.size());
@@ -70,20 +117,12 @@ public class Simulation {
                     Passenger passenger = passengerListCopy.get(randomIndex);
                     int arrivalDelay = random.nextInt(30) * 10;//TODO Time can be changed
                     Thread.sleep(arrivalDelay);
-                    passenger.addRandomBaggage();
-                    String addBaggageMsg = String.format("Passenger %s added %s.",
-                            passenger.getRefCode(),
-                            passenger.getHisBaggageList().toString());
-                    Log.generateLog(addBaggageMsg);
-                    counterManager.addPassengerToQueue(passenger);
-                    Log.generateLog(String.format("Passenger %s is added into %s queue.", passenger.getRefCode(), passenger.isVIP()));
+                    passengerArrival(passenger);
                     // Remove the processed passenger from the list to avoid reprocessing
                     passengerListCopy.remove(randomIndex);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     return;
-                } catch (AllExceptions.NumberErrorException e) {
-                    throw new RuntimeException(e);
                 }
             }
             Log.generateLog("All passengers have joined the queue.");
@@ -92,6 +131,26 @@ public class Simulation {
         passengerThread.start();
     }
 
+    /**
+     * A passenger arrives at the airport: assigns random baggage and adds him to the queue.
+     * Also used for bookings picked up by the BookingIngestion after the simulation started.
+     *
+     * @param passenger The arriving passenger.
+     */
+    private void passengerArrival(Passenger passenger) {
+        try {
+            passenger.addRandomBaggage();
+        } catch (AllExceptions.NumberErrorException e) {
+            throw new RuntimeException(e);
+        }
+        String addBaggageMsg = String.format("Passenger %s added %s.",
+                passenger.getRefCode(),
+                passenger.getHisBaggageList().toString());
+        Log.generateLog(addBaggageMsg);
+        counterManager.addPassengerToQueue(passenger);
+        Log.generateLog(String.format("Passenger %s is added into %s queue.", passenger.getRefCode(), passenger.isVIP()));
+    }
+
     /**
      * Monitors and logs flight takeoffs in a daemon thread. Checks flight statuses and updates them until all have taken off.
      */
@@ -101,7 +160,7 @@ public class Simulation {
             do {
                 updateFlightTakeOffStatus();
                 allFlightsTakenOff = true;
-                for (Flight flight : fltList.getFlightList()) {
+                for (Flight flight : fltList.view()) {
                     if (!flight.getIsTakenOff()) {
                         allFlightsTakenOff = false;
                         break;
@@ -117,7 +176,13 @@ public class Simulation {
                 }
             } while (!allFlightsTakenOff);
             counterManager.stopAllCounters();
+            if (counterScheduler != null) {
+                counterScheduler.shutdown();
+            }
+            bookingIngestion.shutdown();
+            flightNotifier.shutdown();
             Log.generateLog("All flights have now taken off. Close all counters.");
+            reportMissedFlights();
         });
         monitorThread.setDaemon(true);
         monitorThread.start();
@@ -128,24 +193,55 @@ public class Simulation {
      */
     private synchronized void updateFlightTakeOffStatus() {
         Instant now = Instant.now();
-        for (Flight flight : fltList.getFlightList()) {
+        for (Flight flight : fltList.view()) {
             if (!now.isBefore(flight.getTakeOffInstant()) && !flight.getTimePassed()) {
-                if (flight.canTakeOff()) {
-                    flight.takeOff();
-                    Log.generateLog(String.format("Flight %s has taken off.", flight.getFlightCode()));
-                } else {
-                    Log.generateLog(String.format("Flight %s can not take off because it's overloaded. ", flight.getFlightCode()));
+                // Hold the flight's check-in lock, so no check-in is half done when the doors close
+                Lock flightLock = fltList.lockFor(flight);
+                flightLock.lock();
+                try {
+                    if (flight.canTakeOff()) {
+                        flight.takeOff();
+                        Log.generateLog(String.format("Flight %s has taken off.", flight.getFlightCode()));
+                    } else {
+                        Log.generateLog(String.format("Flight %s can not take off because it's overloaded. ", flight.getFlightCode()));
+                    }
+                    flight.setTimePassed();
+                } finally {
+                    flightLock.unlock();
+                }
+                int missed = flight.getPassengerInFlight().size() - flight.getPassengerInFlight().checkInSize();
+                if (missed > 0) {
+                    missedPassengers += missed;
+                    Log.generateLog(String.format("%d passengers missed flight %s.", missed, flight.getFlightCode()));
                 }
-                flight.setTimePassed();
             }
         }
     }
 
     /**
-     * Starts the simulation by processing passengers and monitoring flight takeoffs.
+     * Logs and prints how many passengers missed their flight under the queue and scaling policies of this run.
+     */
+    private synchronized void reportMissedFlights() {
+        String report = String.format("Queue policy %s: %d of %d passengers missed their flight.",
+                QUEUE_POLICY, missedPassengers, paxList.size());
+        Log.generateLog(report);
+        System.out.println(report);
+        String scaling = counterManager.getScalingSummary();
+        Log.generateLog(scaling);
+        System.out.println(scaling);
+    }
+
+    /**
+     * Starts the simulation by processing passengers, watching for new bookings and monitoring flight takeoffs.
      */
     public void startSimulation() {
+        flightNotifier.start();
         passengerProcessing();
+        try {
+            bookingIngestion.start();
+        } catch (IOException e) {
+            Log.generateLog("Late bookings are disabled: " + e.getMessage());
+        }
         monitorFlightTakeoff();
     }
 }
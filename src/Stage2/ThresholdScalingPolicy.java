@@ -0,0 +1,31 @@
+package Stage2;
+
+/**
+ * Opens a counter for every full OPEN_THRESHOLD passengers waiting beyond what the open counters cover,
+ * and closes one for every CLOSE_THRESHOLD passengers the open counters could take on top.
+ * It only looks at the current queue size, so it reacts once a backlog has built up.
+ */
+public class ThresholdScalingPolicy implements ScalingPolicy {
+    private static final int OPEN_THRESHOLD = 15; // Setting the threshold for adding counters
+    private static final int CLOSE_THRESHOLD = 10; //Setting the threshold for deleting counters
+    private int lastQueueSize;
+
+    @Override
+    public int countersToAdjust(PassengerQueue queue, int openCount, long now) {
+        int queueSize = queue.size();
+        lastQueueSize = queueSize;
+        int excess = Math.max(0, queueSize - (openCount * OPEN_THRESHOLD));
+        int deficit = Math.max(0, (openCount * CLOSE_THRESHOLD) - queueSize);
+        return excess / OPEN_THRESHOLD - deficit / CLOSE_THRESHOLD;
+    }
+
+    @Override
+    public String describe() {
+        return String.format("%d passengers waiting", lastQueueSize);
+    }
+
+    @Override
+    public String getName() {
+        return "Threshold";
+    }
+}
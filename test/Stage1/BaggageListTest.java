@@ -2,6 +2,7 @@ package Stage1;
 
 import Stage1.modules.AllExceptions;
 import Stage1.modules.Baggage;
+import Stage1.modules.BaggageColumns;
 import Stage1.modules.BaggageList;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -49,6 +50,41 @@ public class BaggageListTest {
         }
     }
 
+    // Test whether the running totals match a full recalculation and are reset by clear
+    @Test
+    public void testRunningTotals() {
+        try {
+            baggageList.addBaggage(new Baggage(10.0, 20.0, 20.0, 20.0));
+            baggageList.addBaggage(new Baggage(12.5, 10.0, 20.0, 30.0));
+            assertEquals(22.5, baggageList.getTotalWeight(), 1e-9, "Running weight should be the sum of the bags");
+            assertEquals(14000.0, baggageList.getTotalVolume(), 1e-9, "Running volume should be the sum of the bags");
+            assertEquals(baggageList.getTotalWeight(), baggageList.calculateTotalWeight(), 1e-9, "Recalculation should agree");
+            baggageList.clear();
+            assertEquals(0.0, baggageList.getTotalWeight(), "Weight should be 0 after clear");
+            assertEquals(0.0, baggageList.getTotalFee(), "Fee should be 0 after clear");
+        } catch (AllExceptions.NumberErrorException e) {
+            fail("Baggage creation should not throw NumberErrorException for valid dimensions and weight");
+        }
+    }
+
+    @Test
+    public void testBaggageColumns() {
+        BaggageColumns columns = new BaggageColumns();
+        try {
+            for (int i = 0; i < 100; i++) {
+                columns.addBaggage(new Baggage(10.0 + i % 10, 20.0, 20.0, 20.0));
+            }
+        } catch (AllExceptions.NumberErrorException e) {
+            fail("Baggage creation should not throw NumberErrorException for valid dimensions and weight");
+        }
+        assertEquals(100, columns.size(), "Columns should grow past their initial capacity");
+        assertEquals(1450.0, columns.getTotalWeight(), 1e-9, "Running weight should be the sum of the bags");
+        assertEquals(columns.getTotalWeight(), columns.sumWeight(), 1e-9, "Bulk sum should agree");
+        assertEquals(50, columns.filter((weight, length, width, height, volume) -> weight >= 15.0).length, "Half the bags weigh 15kg or more");
+        assertEquals(0, columns.countInvalid(), "Checked baggage should stay valid");
+        assertEquals(19.0, columns.get(99).getWeight(), 1e-9, "Materialized bag should match its columns");
+    }
+
     /**
      * We limit the weight of a single piece of baggage to 23kg and its dimensions to a total of 158cm on three sides.
      * if this is exceeded, an NumberErrorException will be thrown and the item will not be able to be checked in.
@@ -87,4 +87,56 @@ class FlightTest {
         }
     }
 
+    // Reads must not count as changes, check-in, baggage and takeoff must
+    @Test
+    void versionChangesOnlyOnMutation() throws AllExceptions.NoMatchingRefException, AllExceptions.NumberErrorException {
+        long version = flight.getVersion();
+        flight.getPassengerInFlight();
+        flight.toString();
+        assertEquals(version, flight.getVersion(), "Reading the flight should not change its version");
+        flight.getPassengerInFlight().findByRefCode("B0501").checkIn();
+        assertTrue(flight.getVersion() > version, "Check-in should change the version");
+        version = flight.getVersion();
+        flight.addBaggageToFlight(new Baggage(10.0, 2.0, 2.0, 2.0));
+        assertTrue(flight.getVersion() > version, "Adding baggage should change the version");
+        version = flight.getVersion();
+        flight.takeOff();
+        assertTrue(flight.getVersion() > version, "Takeoff should change the version");
+    }
+
+    // Bags loaded through the concurrent hold must still be stored in the hold's columns
+    @Test
+    void concurrentHoldStoresBagsInColumns() throws AllExceptions.NumberErrorException {
+        flight.addBaggageToFlight(new Baggage(10.0, 2.0, 2.0, 2.0));
+        flight.enableConcurrentHold();
+        flight.addBaggageGroupToFlight(java.util.List.of(new Baggage(5.0, 1.0, 1.0, 5.0), new Baggage(3.0, 1.0, 1.0, 1.0)));
+        assertEquals(3, flight.getHoldColumns().size(), "All bags should be in the columns");
+        assertEquals(18.0, flight.getHoldColumns().sumWeight(), 1e-9);
+        assertEquals(18.0, flight.getHoldWeight(), 1e-9);
+    }
+
+    // Bags added by several threads while the concurrent hold is switched on must all be counted and stored
+    @Test
+    void concurrentHoldKeepsBagsAddedWhileEnabling() throws InterruptedException {
+        Thread[] loaders = new Thread[4];
+        for (int i = 0; i < loaders.length; i++) {
+            loaders[i] = new Thread(() -> {
+                for (int bag = 0; bag < 500; bag++) {
+                    try {
+                        flight.addBaggageToFlight(new Baggage(1.0, 1.0, 1.0, 1.0));
+                    } catch (AllExceptions.NumberErrorException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            loaders[i].start();
+        }
+        flight.enableConcurrentHold();
+        for (Thread loader : loaders) {
+            loader.join();
+        }
+        assertEquals(2000.0, flight.getHoldWeight(), 1e-9, "No bag should be missing from the totals");
+        assertEquals(2000, flight.getHoldColumns().size(), "Every logged bag should be moved into the columns");
+    }
+
 }
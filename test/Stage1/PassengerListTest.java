@@ -2,7 +2,10 @@ package Stage1;
 
 import Stage1.modules.AllExceptions;
 import Stage1.modules.Passenger;
+import Stage1.modules.PassengerColumns;
 import Stage1.modules.PassengerList;
+
+import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -62,6 +65,70 @@ class PassengerListTest {
         }, "Expected NameCodeMismatchException for mismatched last name.");
     }
 
+    // Test whether the last name index returns every passenger sharing the surname
+    @Test
+    public void testFindByLastName() {
+        assertEquals(2, passengerList.findByLastName("Doe").size(), "Both passengers should be found by last name Doe.");
+        assertTrue(passengerList.findByLastName("Smith").isEmpty(), "No passenger should be found by last name Smith.");
+    }
+
+    // Test whether the check-in count and the not-checked-in list follow Passenger.checkIn
+    @Test
+    public void testCheckInSize() throws AllExceptions.NoMatchingRefException {
+        assertEquals(0, passengerList.checkInSize(), "Nobody should be checked in yet.");
+        passengerList.findByRefCode("B0502").checkIn();
+        passengerList.findByRefCode("B0502").checkIn();
+        assertEquals(1, passengerList.checkInSize(), "Checking in twice should count once.");
+        assertEquals("B0501", passengerList.getNotCheckedIn().get(0).getRefCode(), "B0501 should still be waiting.");
+        assertEquals(1, passengerList.getNotCheckedIn().size(), "Only one passenger should still be waiting.");
+    }
+
+    // Test whether the read-only view is shared until the list changes
+    @Test
+    public void testViewSnapshot() {
+        List<Passenger> view = passengerList.view();
+        assertSame(view, passengerList.view(), "Reads without a change should share one snapshot.");
+        assertThrows(UnsupportedOperationException.class, () -> view.add(null), "The view should be read-only.");
+        passengerList.addPassenger(new Passenger("B0503", "Jim", "Roe", "VD7018", false));
+        assertEquals(2, view.size(), "An old snapshot should not see later changes.");
+        assertEquals(3, passengerList.view().size(), "A new snapshot should be taken after a change.");
+        assertEquals(2, passengerList.parallelStream().filter(p -> p.getLastName().equals("Doe")).count(), "Parallel streams should see every passenger.");
+    }
+
+    // Test whether a passenger removed by clear cannot mark the passenger who took over his slot
+    @Test
+    public void testCheckInAfterClearAndRefill() throws AllExceptions.NoMatchingRefException {
+        Passenger removed = passengerList.findByRefCode("B0501");
+        passengerList.clear();
+        passengerList.addPassenger(new Passenger("B0503", "Jim", "Roe", "VD7018", false));
+        removed.checkIn();
+        assertEquals(0, passengerList.checkInSize(), "The new passenger in the slot should not be checked in.");
+        assertFalse(passengerList.findByRefCode("B0503").getIfCheck(), "The new passenger should still be waiting.");
+    }
+
+    // Test whether the check-in count per flight is taken from the list's check-in index
+    @Test
+    public void testCheckInSizeByFlight() throws AllExceptions.NoMatchingRefException {
+        passengerList.findByRefCode("B0502").checkIn();
+        assertEquals(1, passengerList.checkInSize("DQ2692"), "One DQ2692 passenger should be checked in.");
+        assertEquals(0, passengerList.checkInSize("VD7018"), "No VD7018 passenger should be checked in.");
+    }
+
+    // Test whether the columns find rows through the reference code index, packed or not
+    @Test
+    public void testColumnsIndexOf() {
+        PassengerColumns columns = new PassengerColumns();
+        columns.addPassenger("B0501", "John", "Doe", "VD7018", false);
+        columns.addPassenger("LONGREFERENCE1", "Jane", "Doe", "DQ2692", true);
+        columns.addPassenger("B0501", "Jim", "Roe", "VD7018", false);
+        assertEquals(0, columns.indexOf("B0501"), "The first row of a reference code should be found.");
+        assertEquals(1, columns.indexOf("LONGREFERENCE1"), "A code that cannot be packed should be found.");
+        assertEquals(-1, columns.indexOf("B9999"), "An unknown code should not be found.");
+        columns.get(1).checkIn();
+        assertEquals(1, columns.checkInSize("DQ2692"), "Checking in a row's passenger should mark the row.");
+        assertEquals(2, columns.getNotCheckedIn().size(), "Two rows should still be waiting.");
+    }
+
     @AfterEach
     public void tearDown() {
         passengerList = null;
@@ -0,0 +1,33 @@
+package Stage1;
+
+import Stage1.modules.RefCodeCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefCodeCodecTest {
+
+    // Test whether a packed reference code decodes back to the same string
+    @Test
+    public void testEncodeDecode() {
+        long packed = RefCodeCodec.encode("B0001");
+        assertNotEquals(RefCodeCodec.NOT_PACKED, packed, "B0001 should be packable.");
+        assertEquals("B0001", RefCodeCodec.decode(packed), "Decoding should give back the reference code.");
+    }
+
+    // Test whether packed codes keep the order of the strings
+    @Test
+    public void testPackedOrder() {
+        String[] codes = {"B0001", "B0002", "B001", "REF0", "REF10", "REF9"};
+        for (int i = 0; i < codes.length - 1; i++) {
+            assertTrue(RefCodeCodec.encode(codes[i]) < RefCodeCodec.encode(codes[i + 1]),
+                    codes[i] + " should be packed lower than " + codes[i + 1]);
+        }
+    }
+
+    // Codes longer than 9 characters cannot be packed
+    @Test
+    public void testTooLongNotPacked() {
+        assertEquals(RefCodeCodec.NOT_PACKED, RefCodeCodec.encode("NONEXISTENT"), "Long codes should not be packed.");
+    }
+}
@@ -1,11 +1,19 @@
 package Stage2;
 
+import Stage1.modules.Flight;
 import Stage1.modules.FlightList;
+import Stage1.modules.Passenger;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * This class is used to test that counters can be correctly created
@@ -49,12 +57,100 @@ class CheckInCounterManagerTest {
         for (int i = manager.getOpenCount(false); i > CheckInCounterManager.getMIN_REGULAR_COUNTER(); i--) {
             manager.closeCounter(false);
         }
+        assertFalse(manager.closeCounter(true), "Closing a VIP counter at the limit should report no change");
+        assertFalse(manager.closeCounter(false), "Closing a regular counter at the limit should report no change");
         assertEquals(CheckInCounterManager.getMIN_VIP_COUNTER(), manager.getOpenCount(true),
                 "Should not close VIP counters beyond min limit");
         assertEquals(CheckInCounterManager.getMIN_REGULAR_COUNTER(), manager.getOpenCount(false),
                 "Should not close regular counters beyond min limit");
     }
 
+    @Test
+    void testPredictiveScalingOpensForBacklog() {
+        // 30 passengers waiting for one counter serving about one every 1.5 s is far over a 20 s target wait
+        PassengerQueue queue = new PassengerQueue();
+        for (int i = 0; i < 30; i++) {
+            queue.enqueue(new Passenger("B" + i, "Jane", "Doe", "DQ2692", false));
+        }
+        PredictiveScalingPolicy policy = new PredictiveScalingPolicy(20, 3000, CheckInCounterManager.getMAX_REGULAR_COUNTER());
+        int opened = policy.countersToAdjust(queue, 1, 1000);
+        assertTrue(opened > 0, "Should open counters for the backlog");
+        assertTrue(1 + opened <= CheckInCounterManager.getMAX_REGULAR_COUNTER(), "Should not ask for more counters than allowed");
+        // Within the cool-down nothing changes, even with the backlog still there
+        assertEquals(0, policy.countersToAdjust(queue, 3, 2000), "Should not change counters within the cool-down");
+    }
+
+    @Test
+    void testPredictiveScalingClosesAfterStall() {
+        // Counters that served nobody for a long time must not leave the policy unable to close any
+        PassengerQueue queue = new PassengerQueue();
+        for (int i = 0; i < 30; i++) {
+            queue.enqueue(new Passenger("B" + i, "Jane", "Doe", "DQ2692", false));
+        }
+        PredictiveScalingPolicy policy = new PredictiveScalingPolicy(20, 3000, CheckInCounterManager.getMAX_REGULAR_COUNTER());
+        policy.countersToAdjust(queue, 1, 1000);
+        policy.countersToAdjust(queue, 5, 600_000);
+        while (queue.dequeue() != null) {
+            // The backlog clears at once
+        }
+        assertEquals(-1, policy.countersToAdjust(queue, 5, 1_200_000), "Should close a counter once the queue is empty");
+    }
+
+    @Test
+    void testErlangCWait() {
+        // Two passengers a second at three counters serving one a second each wait 4/9 s on average
+        assertEquals(4.0 / 9.0, PredictiveScalingPolicy.erlangCWait(3, 2, 1), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, PredictiveScalingPolicy.erlangCWait(2, 2, 1));
+    }
+
+    @Test
+    void testCounterRegistryReusesFreedIds() {
+        // A removed counter frees its ID for the next counter of the same type only
+        CounterRegistry registry = new CounterRegistry();
+        PassengerQueue queue = new PassengerQueue();
+        FlightList flightList = new FlightList();
+        CheckInCounter first = registry.open(false, 5, id -> new CheckInCounter(id, queue, false, flightList));
+        CheckInCounter second = registry.open(false, 5, id -> new CheckInCounter(id, queue, false, flightList));
+        CheckInCounter vip = registry.open(true, 3, id -> new CheckInCounter(id, queue, true, flightList));
+        assertEquals(1, first.getCounterId());
+        assertEquals(2, second.getCounterId());
+        assertEquals(0, vip.getCounterId());
+        registry.remove(first);
+        assertEquals(1, registry.getOpenCount(false), "Removing a counter should close it");
+        CheckInCounter third = registry.open(false, 5, id -> new CheckInCounter(id, queue, false, flightList));
+        assertEquals(1, third.getCounterId(), "Should reuse the lowest free regular ID");
+        assertEquals(2, registry.getOpenCount(false));
+    }
+
+    @Test
+    void testCountersServeEveryPassengerOnSharedPool() throws InterruptedException {
+        // All regular counters run as tasks on two pool threads instead of one thread each
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(2);
+        FlightList flightList = new FlightList();
+        Flight flight = new Flight("DQ2692", "Destination", "Carrier", 100, 20000, 200, 100);
+        flightList.addFlight(flight);
+        CheckInCounterManager pooled = new CheckInCounterManager(flightList, pool);
+        for (int i = pooled.getOpenCount(false); i < CheckInCounterManager.getMAX_REGULAR_COUNTER(); i++) {
+            pooled.createNewCounter(false);
+        }
+        for (int i = 0; i < 20; i++) {
+            Passenger passenger = new Passenger(String.format("B%04d", 700 + i), "Jane", "Doe", "DQ2692", false);
+            flight.addPassenger(passenger);
+            pooled.addPassengerToQueue(passenger);
+        }
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (flight.getPassengerInFlight().checkInSize() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(20, flight.getPassengerInFlight().checkInSize(), "Every queued passenger should be served");
+
+        // Once the counters are stopped no counter task is left, so the pool can end
+        pooled.stopAllCounters();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS), "The pool should end after the counters stop");
+    }
+
     @AfterEach
     void tearDown() {
         manager = null;
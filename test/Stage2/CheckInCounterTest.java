@@ -52,6 +52,33 @@ class CheckInCounterTest {
         assertFalse(checkInCounter.processPassenger(passenger), "Passenger should not be able to check");
     }
 
+    @Test
+    void testCannotCheckInTwice() throws AllExceptions.NoMatchingFlightException, AllExceptions.NoMatchingRefException, AllExceptions.NumberErrorException {
+        // A second check-in of the same passenger must not load the baggage again
+        assertTrue(checkInCounter.processPassenger(passenger), "Passenger should be able to check in before takeoff.");
+        assertFalse(checkInCounter.processPassenger(passenger), "Passenger should not be able to check in twice.");
+        assertTrue(flight.getPassengerInFlight().checkInSize() == 1, "Passenger should be counted once.");
+    }
+
+    @Test
+    void testProcessBatch() throws AllExceptions.NoMatchingFlightException, AllExceptions.NoMatchingRefException, AllExceptions.NumberErrorException {
+        // The same passenger twice in one batch is checked in once
+        assertTrue(checkInCounter.processBatch(java.util.List.of(passenger, passenger)) == 1, "Passenger should be checked in once.");
+        assertTrue(flight.getPassengerInFlight().checkInSize() == 1, "Passenger should be counted once.");
+    }
+
+    @Test
+    void testProcessBatchSkipsFailingPassenger() {
+        // A passenger of an unknown flight in the middle of a batch is left out, the others are still checked in
+        Passenger stranger = new Passenger("B0601", "John", "Roe", "XX0000", false);
+        Passenger other = new Passenger("B0602", "Ann", "Poe", "DQ2692", false);
+        flight.addPassenger(other);
+        assertTrue(checkInCounter.processBatch(java.util.List.of(passenger, stranger, other)) == 2, "Two passengers should be checked in.");
+        assertTrue(passenger.getIfCheck(), "Passenger before the failing one should be checked in.");
+        assertTrue(other.getIfCheck(), "Passenger after the failing one should be checked in.");
+        assertFalse(stranger.getIfCheck(), "Passenger of an unknown flight should not be checked in.");
+    }
+
     @AfterEach
     void tearDown() {
         flightList = null;
@@ -0,0 +1,122 @@
+package Stage2;
+
+import Stage1.modules.Flight;
+import Stage1.modules.FlightList;
+import Stage1.modules.Passenger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class tests the order in which the earliest-deadline-first discipline serves passengers,
+ * including after passengers are removed from the middle of its heap.
+ */
+class EarliestDeadlineDisciplineTest {
+    private FlightList flightList;
+    private EarliestDeadlineDiscipline discipline;
+
+    @BeforeEach
+    void setUp() {
+        // One flight per take-off time, the flight code is "T" followed by the minutes until take-off
+        flightList = new FlightList();
+        for (int minutes : new int[]{1, 2, 3, 4, 10, 11, 12}) {
+            flightList.addFlight(new Flight("T" + minutes, "Destination", "Carrier", 100, 20000, 200, minutes));
+        }
+        discipline = new EarliestDeadlineDiscipline(flightList);
+    }
+
+    private Passenger passenger(String refCode, int minutes) {
+        return new Passenger(refCode, "Jane", "Doe", "T" + minutes, false);
+    }
+
+    private List<String> drain() {
+        List<String> served = new ArrayList<>();
+        for (Passenger next = discipline.poll(); next != null; next = discipline.poll()) {
+            served.add(next.getRefCode());
+        }
+        return served;
+    }
+
+    // Test whether passengers are served by take-off time, in arrival order within a flight, unknown flights last
+    @Test
+    void testServesEarliestTakeOffFirst() {
+        discipline.offer(passenger("B0001", 12));
+        discipline.offer(new Passenger("B0002", "Jane", "Doe", "XX0000", false));
+        discipline.offer(passenger("B0003", 2));
+        discipline.offer(passenger("B0004", 10));
+        discipline.offer(passenger("B0005", 2));
+        discipline.offer(passenger("B0006", 1));
+
+        assertEquals(List.of("B0006", "B0003", "B0005", "B0004", "B0001", "B0002"), drain(),
+                "Passengers should be served by take-off time, then by arrival.");
+        assertNull(discipline.poll(), "An empty discipline should have no next passenger.");
+    }
+
+    // Test whether passengers of flights that have left are served after everyone who can still make a flight
+    @Test
+    void testDepartedFlightsGoLast() {
+        Flight departed = new Flight("GONE1", "Destination", "Carrier", 100, 20000, 200, 30);
+        departed.takeOff();
+        flightList.addFlight(departed);
+        flightList.addFlight(new Flight("LATE1", "Destination", "Carrier", 100, 20000, 200, -5)); // Take-off time passed
+        discipline.offer(new Passenger("B0001", "Jane", "Doe", "GONE1", false));
+        discipline.offer(new Passenger("B0002", "Jane", "Doe", "LATE1", false));
+        discipline.offer(passenger("B0003", 12));
+        discipline.offer(passenger("B0004", 1));
+
+        assertEquals(List.of("B0004", "B0003", "B0001", "B0002"), drain(),
+                "Passengers who missed their flight should wait behind every reachable deadline.");
+    }
+
+    // Test whether the last passenger moved into a removed slot sifts up when it belongs above it
+    @Test
+    void testRemoveSiftsLastPassengerUp() {
+        // Heap slots in offer order: 1, 10, 2, 11, 12, 3, 4
+        List<Passenger> passengers = new ArrayList<>();
+        for (int minutes : new int[]{1, 10, 2, 11, 12, 3, 4}) {
+            Passenger passenger = passenger("B" + minutes, minutes);
+            passengers.add(passenger);
+            discipline.offer(passenger);
+        }
+        // Removing 11 moves 4 into its slot, below 10, so 4 has to move up
+        assertTrue(discipline.remove(passengers.get(3)), "A waiting passenger should be removed.");
+        assertEquals(List.of("B1", "B2", "B3", "B4", "B10", "B12"), drain(),
+                "The heap should keep its order after removing a passenger from the middle.");
+    }
+
+    // Test whether the last passenger moved into a removed slot sifts down when it belongs below it
+    @Test
+    void testRemoveSiftsLastPassengerDown() {
+        // Heap slots in offer order: 1, 2, 10, 3, 4, 11, 12
+        List<Passenger> passengers = new ArrayList<>();
+        for (int minutes : new int[]{1, 2, 10, 3, 4, 11, 12}) {
+            Passenger passenger = passenger("B" + minutes, minutes);
+            passengers.add(passenger);
+            discipline.offer(passenger);
+        }
+        // Removing 2 moves 12 into its slot, above 3 and 4, so 12 has to move down
+        assertTrue(discipline.remove(passengers.get(1)), "A waiting passenger should be removed.");
+        assertEquals(List.of("B1", "B3", "B4", "B10", "B11", "B12"), discipline.toList().stream()
+                .map(Passenger::getRefCode).toList(), "The snapshot should list the passengers in serving order.");
+        assertFalse(discipline.remove(passengers.get(1)), "A removed passenger should no longer be waiting.");
+        assertEquals(List.of("B1", "B3", "B4", "B10", "B11", "B12"), drain(),
+                "The heap should keep its order after removing a passenger from the middle.");
+    }
+
+    // Test whether a passenger who is already waiting is refused and keeps their place
+    @Test
+    void testRefusesWaitingPassenger() {
+        Passenger first = passenger("B0001", 3);
+        assertTrue(discipline.offer(first), "A new passenger should be accepted.");
+        discipline.offer(passenger("B0002", 3));
+        assertFalse(discipline.offer(first), "A waiting passenger should be refused.");
+        assertEquals(List.of("B0001", "B0002"), drain(), "A refused passenger should keep their place.");
+    }
+}